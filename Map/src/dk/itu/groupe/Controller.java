@@ -295,6 +295,9 @@ public class Controller extends ComponentAdapter implements
             ex.printStackTrace(System.err);
         }
         System.out.println("Loaded edges in " + (System.currentTimeMillis() - time) / 1000.0 + " s");
+        time = System.currentTimeMillis();
+        model.finishLoading();
+        System.out.println("Built nearest road index in " + (System.currentTimeMillis() - time) / 1000.0 + " s");
         // Finished loading.
 
         final View view = new View(model);
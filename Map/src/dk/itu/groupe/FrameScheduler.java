@@ -0,0 +1,77 @@
+package dk.itu.groupe;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * Limits how often a component is repainted.
+ *
+ * Every change of the model asks for a new frame, but the map is only
+ * repainted when a frame is due. The changes made while waiting are all
+ * shown by the next frame, as it is drawn from the model as it is then, so
+ * the states in between are never drawn.
+ *
+ * Every method should be called from the event dispatch thread.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class FrameScheduler implements ActionListener
+{
+
+    private final JComponent component;
+    private final long interval;
+    private final Timer timer;
+    private long lastFrame;
+
+    /**
+     * Creates a new FrameScheduler.
+     *
+     * @param component The component to repaint.
+     * @param fps The greatest number of frames per second.
+     */
+    public FrameScheduler(JComponent component, int fps)
+    {
+        this.component = component;
+        interval = 1000000000L / Math.max(1, fps);
+        timer = new Timer(0, this);
+        timer.setRepeats(false);
+        lastFrame = System.nanoTime() - interval;
+    }
+
+    /**
+     * Asks for a new frame. The component is repainted at once if the last
+     * frame was long enough ago, and otherwise when the next frame is due.
+     */
+    public void request()
+    {
+        if (timer.isRunning()) {
+            // The frame that is coming will show this change as well.
+            return;
+        }
+        long wait = lastFrame + interval - System.nanoTime();
+        if (wait <= 0) {
+            component.repaint();
+        } else {
+            timer.setInitialDelay((int) Math.max(1, wait / 1000000));
+            timer.start();
+        }
+    }
+
+    /**
+     * Tells the scheduler that a frame is being drawn. This should be called
+     * when the component is painted.
+     */
+    public void painted()
+    {
+        lastFrame = System.nanoTime();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e)
+    {
+        component.repaint();
+    }
+}
@@ -5,13 +5,15 @@ import dk.itu.groupe.pathfinding.*;
 import dk.itu.groupe.loading.*;
 import dk.itu.groupe.util.*;
 import java.awt.Point;
+import java.awt.Shape;
 import java.awt.geom.*;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.io.IOException;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Observable;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import javax.swing.SwingUtilities;
 
 /**
  * The model contains all the information about the map.
@@ -25,29 +27,42 @@ import java.util.concurrent.ExecutorService;
 public class Model extends Observable
 {
 
+    /**
+     * The number of zoom levels it takes to double the factor.
+     */
+    public static final int ZOOM_STEPS = 16;
     private final double lowestX_COORD, highestX_COORD, lowestY_COORD, highestY_COORD;
     private final double minFactor = 0.5;
+    // Roadnames are only shown for roads within this many meters of the mouse.
+    private final double roadnameRadius = 500;
     private final int maxNodes;
     private final Graph g;
     private final Loader loader;
-    private final Map<CommonRoadType, KDTree> treeMap;
+    private final Map<CommonRoadType, RTree> treeMap;
+    private final Map<CommonRoadType, Edge[]> edgeMap;
     private final String dir;
 
     private boolean reset, pathByDriveTime;
-    private double leftX, bottomY, rightX, topY, factor, ratioX, ratioY, initialFactor;
-    private int from, to, screenWidth, screenHeight;
+    private double leftX, bottomY, rightX, topY, factor, initialFactor;
+    private int zoomLevel, from, to, screenWidth, screenHeight;
     private MouseTool mouseTool;
-    private Node[] nodeMap;
+    private LandMask landMask;
+    private NodeStore nodes;
+    private RTree nearestTree;
+    private RoutePlanner planner;
+    private Route route;
+    // Counts the routes asked for, so a route that has been replaced by a
+    // newer one is ignored when it arrives.
+    private int routeVersion;
+    private boolean routing;
     private Point2D pressed, dragged, moved;
-    private ShortestPath shortestPath;
     private String roadname;
-    private boolean sourceChanged;
 
     /**
      * On creation of the Model, it will start to load in the data.
      *
      * This takes around 10 seconds on a decent computer. After loading it will
-     * create the 2DTree structures for every roadtype in the dataset.
+     * create the R-tree structures for every roadtype in the dataset.
      *
      * @param data
      */
@@ -70,7 +85,9 @@ public class Model extends Observable
         highestY_COORD = info.yHigh;
         maxNodes = info.maxNodes;
         mouseTool = MouseTool.MOVE;
-        treeMap = new HashMap<>();
+        // The trees are put in the map by the threads of the thread pool.
+        treeMap = new ConcurrentHashMap<>();
+        edgeMap = new EnumMap<>(CommonRoadType.class);
         loader = new Loader();
         g = new Graph(maxNodes);
         // Sets pathfinding to use fastest path as default.
@@ -80,13 +97,17 @@ public class Model extends Observable
     /**
      * Loads the coasline from datafiles.
      *
-     * Creates the structures responsible for the KD-Tree containing coastline.
-     * Also initializes the view.
+     * Loads the land mask if the parser has made one. Otherwise the polygons
+     * of the coastline are loaded into an R-tree. Also initializes the view.
      */
     public void loadCoastline()
     {
-        LinkedList<Edge> edges = loader.loadCoastline("./res/data/coastline/");
-        treeMap.put(CommonRoadType.COASTLINE, new KDTree(edges, lowestX_COORD, lowestY_COORD, highestX_COORD, highestY_COORD));
+        String coastline = "./res/data/coastline/";
+        landMask = loader.loadLandMask(coastline);
+        if (landMask == null) {
+            Edge[] edges = loader.loadCoastline(coastline);
+            treeMap.put(CommonRoadType.COASTLINE, new RTree(edges));
+        }
 
         screenHeight = java.awt.Toolkit.getDefaultToolkit().getScreenSize().height - 110;
         screenWidth = java.awt.Toolkit.getDefaultToolkit().getScreenSize().width;
@@ -100,7 +121,7 @@ public class Model extends Observable
      */
     public void loadNodes()
     {
-        nodeMap = loader.loadNodes(dir + "nodes.bin", maxNodes);
+        nodes = loader.loadNodes(dir + "nodes.bin", maxNodes);
     }
 
     /**
@@ -112,25 +133,96 @@ public class Model extends Observable
      */
     public void loadRoadType(final CommonRoadType rt, ExecutorService es)
     {
-        final LinkedList<Edge> edgeList = loader.loadEdges(rt, dir, nodeMap);
+        final Edge[] edgeList = loader.loadEdges(rt, dir, nodes);
+        edgeMap.put(rt, edgeList);
         es.execute(new Runnable()
         {
 
             @Override
             public void run()
             {
-                if (rt != CommonRoadType.PEDESTRIAN) {
+                if (Graph.includes(rt)) {
                     for (Edge edge : edgeList) {
                         g.addEdge(edge);
                     }
                 }
-                if (!edgeList.isEmpty()) {
-                    treeMap.put(rt, new KDTree(edgeList, lowestX_COORD, lowestY_COORD, highestX_COORD, highestY_COORD));
+                if (edgeList.length > 0) {
+                    treeMap.put(rt, new RTree(edgeList));
                 }
             }
         });
     }
 
+    /**
+     * Loads what the planner needs to find the kind of routes quickly. This
+     * is the hierarchy made by the ContractionHierarchyBuilder, if it has
+     * been built for the data, and otherwise the Landmarks, if they have been
+     * found.
+     *
+     * @param driveTime Whether to load for the fastest or the shortest
+     * routes.
+     */
+    private void loadRouting(boolean driveTime)
+    {
+        try {
+            ContractionHierarchy hierarchy = ContractionHierarchy.read(dir + ContractionHierarchy.fileName(driveTime), g);
+            if (hierarchy != null) {
+                planner.setHierarchy(hierarchy);
+                return;
+            }
+            Landmarks landmarks = Landmarks.read(dir + Landmarks.fileName(driveTime), g);
+            if (landmarks != null) {
+                planner.setLandmarks(landmarks);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * Builds the structures that need every roadtype to be loaded.
+     *
+     * This should be called when the thread pool given to
+     * <code>loadRoadType</code> has finished. It freezes the graph, and
+     * builds the planner that finds routes in it, and a single R-tree of
+     * every road, which is used to find the nearest road in one search.
+     */
+    public void finishLoading()
+    {
+        g.freeze();
+        planner = new RoutePlanner(g, nodes);
+        for (boolean driveTime : new boolean[]{true, false}) {
+            loadRouting(driveTime);
+        }
+        int count = 0;
+        for (Map.Entry<CommonRoadType, Edge[]> entry : edgeMap.entrySet()) {
+            if (isRoad(entry.getKey())) {
+                count += entry.getValue().length;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        Edge[] roads = new Edge[count];
+        count = 0;
+        for (Map.Entry<CommonRoadType, Edge[]> entry : edgeMap.entrySet()) {
+            if (isRoad(entry.getKey())) {
+                Edge[] edges = entry.getValue();
+                System.arraycopy(edges, 0, roads, count, edges.length);
+                count += edges.length;
+            }
+        }
+        nearestTree = new RTree(roads);
+    }
+
+    /**
+     * Returns whether edges of the roadtype can be the nearest road.
+     */
+    private static boolean isRoad(CommonRoadType rt)
+    {
+        return rt != CommonRoadType.PLACES && rt != CommonRoadType.COASTLINE;
+    }
+
     /**
      * Sets the maps coordinates to the initial value (Show all Denmark).
      */
@@ -232,14 +324,7 @@ public class Model extends Observable
         // to prevent zooming further in than a certain zoom level
         if (factor > minFactor) {
             reset = false;
-            double x = (rightX + leftX) / 2;
-            double y = (topY + bottomY) / 2;
-            leftX = leftX + (30 * ratioX);
-            rightX = rightX - (30 * ratioX);
-            topY = topY - (30 * ratioY);
-            bottomY = (topY - (rightX - leftX) / ((double) screenWidth / (double) screenHeight));
-            center(x, y);
-            calculateFactor();
+            zoomTo(zoomLevel - 1);
             setChanged();
         }
     }
@@ -253,18 +338,28 @@ public class Model extends Observable
         // to prevent zooming further out than the original zoom level
         if (factor < initialFactor) {
             reset = false;
-            double x = (rightX + leftX) / 2;
-            double y = (topY + bottomY) / 2;
-            leftX = leftX - (30 * ratioX);
-            rightX = rightX + (30 * ratioX);
-            topY = topY + (30 * ratioY);
-            bottomY = (topY - (rightX - leftX) / ((double) screenWidth / (double) screenHeight));
-            center(x, y);
-            calculateFactor();
+            zoomTo(zoomLevel + 1);
             setChanged();
         }
     }
 
+    /**
+     * Sets the zoom level, and keeps the center of the current view.
+     *
+     * @param level The new zoom level.
+     */
+    private void zoomTo(int level)
+    {
+        double x = (rightX + leftX) / 2;
+        double y = (topY + bottomY) / 2;
+        double levelFactor = zoomFactor(level);
+        leftX = x - levelFactor * screenWidth / 2;
+        rightX = x + levelFactor * screenWidth / 2;
+        bottomY = y - levelFactor * screenHeight / 2;
+        topY = y + levelFactor * screenHeight / 2;
+        calculateFactor();
+    }
+
     /**
      * Zooms in on the map, and keeps the point specified at the same place on
      * the map after zooming.
@@ -380,7 +475,7 @@ public class Model extends Observable
      */
     public void updateRoadname(double x, double y)
     {
-        Edge near = nearest(new Point2D.Double(x, y), true);
+        Edge near = nearest(new Point2D.Double(x, y), true, roadnameRadius);
         // If there are no "nearest" edges
         if (near != null) {
             roadname = near.getRoadname() + " ";
@@ -456,25 +551,45 @@ public class Model extends Observable
     }
 
     /**
-     * Returns the edges of roadtype <code>rt</code> and within the specified
-     * rectangle-coordinates.
+     * Hands the edges of roadtype <code>rt</code> within the specified
+     * rectangle-coordinates to the visitor.
      *
      * @param rt The roadtype of interest.
      * @param xLeft The left x-coordinate.
      * @param yBottom The bottom y-coordinate.
      * @param xRight The right x-coordinate.
      * @param yTop The top y-coordinate.
-     * @return A list of edges, containing the edges of roadtype <code>rt</code>
-     * within the specified rectangle.
+     * @param visitor The visitor that is given the edges of roadtype
+     * <code>rt</code> within the specified rectangle.
      */
-    @SuppressWarnings("unchecked")
-    public Set<Edge> getEdges(CommonRoadType rt, double xLeft, double yBottom, double xRight, double yTop)
+    public void getEdges(CommonRoadType rt, double xLeft, double yBottom, double xRight, double yTop, EdgeVisitor visitor)
     {
-        if (treeMap.get(rt) != null) {
-            return treeMap.get(rt).getEdges(xLeft, yBottom, xRight, yTop); //(xLeft, yBottom, xRight, yTop);
-        } else {
-            return new HashSet<>();
+        RTree tree = treeMap.get(rt);
+        if (tree != null) {
+            tree.getEdges(xLeft, yBottom, xRight, yTop, visitor);
+        }
+    }
+
+    /**
+     * Returns the land within the specified rectangle-coordinates, if there is
+     * a land mask.
+     *
+     * The shape may reach outside the rectangle, and should be filled using
+     * the non-zero winding rule.
+     *
+     * @param xLeft The left x-coordinate.
+     * @param yBottom The bottom y-coordinate.
+     * @param xRight The right x-coordinate.
+     * @param yTop The top y-coordinate.
+     * @return The land within the rectangle, or null if there is no land mask
+     * and the coastline should be drawn from its edges.
+     */
+    public Shape getLand(double xLeft, double yBottom, double xRight, double yTop)
+    {
+        if (landMask == null) {
+            return null;
         }
+        return landMask.getLand(xLeft, yBottom, xRight, yTop);
     }
 
     /**
@@ -506,6 +621,46 @@ public class Model extends Observable
         return factor;
     }
 
+    /**
+     * Returns the zoom level of the current factor.
+     *
+     * @return The zoom level.
+     * @see #zoomFactor(int)
+     */
+    public int getZoomLevel()
+    {
+        return zoomLevel;
+    }
+
+    /**
+     * Returns the factor of a zoom level.
+     *
+     * The factor doubles every <code>ZOOM_STEPS</code> levels, and level 0 is
+     * a factor of 1. The factor is always the factor of a zoom level, so
+     * zooming in and out again gives the same factor as before, and the map
+     * can be drawn from tiles rendered at that level.
+     *
+     * @param level The zoom level.
+     * @return The factor.
+     */
+    public static double zoomFactor(int level)
+    {
+        return Math.pow(2, (double) level / ZOOM_STEPS);
+    }
+
+    /**
+     * Returns the zoom level of the smallest factor that is at least the
+     * given factor.
+     *
+     * @param factor The factor.
+     * @return The zoom level.
+     */
+    public static int zoomLevel(double factor)
+    {
+        // Rounding errors must not move an exact level up to the next.
+        return (int) Math.ceil(Math.log(factor) / Math.log(2) * ZOOM_STEPS - 1e-6);
+    }
+
     /**
      * Sets the point of last time the mousebutton was pressed.
      *
@@ -547,7 +702,10 @@ public class Model extends Observable
      */
     public void setPathByDriveTime(boolean b)
     {
-        pathByDriveTime = b;
+        if (pathByDriveTime != b) {
+            pathByDriveTime = b;
+            updateRoute();
+        }
         setChanged();
     }
 
@@ -572,23 +730,25 @@ public class Model extends Observable
     }
 
     /**
-     * Returns the node that should be used as first point in routing.
+     * Returns the on-map point of the node that should be used as first point
+     * in routing.
      *
-     * @return the node that should be used as first point in routing.
+     * @return the point that should be used as first point in routing.
      */
-    public Node fromPoint()
+    public Point2D fromPoint()
     {
-        return from >= 0 ? nodeMap[from] : null;
+        return from >= 0 ? new Point2D.Float(nodes.x(from), nodes.y(from)) : null;
     }
 
     /**
-     * Returns the node that should be used as last point in routing.
+     * Returns the on-map point of the node that should be used as last point
+     * in routing.
      *
-     * @return the node that should be used as last point in routing.
+     * @return the point that should be used as last point in routing.
      */
-    public Node toPoint()
+    public Point2D toPoint()
     {
-        return to >= 0 ? nodeMap[to] : null;
+        return to >= 0 ? new Point2D.Float(nodes.x(to), nodes.y(to)) : null;
     }
 
     /**
@@ -596,9 +756,9 @@ public class Model extends Observable
      */
     public void resetPointSet()
     {
-        shortestPath = null;
         from = -1;
         to = -1;
+        updateRoute();
         setChanged();
     }
 
@@ -607,25 +767,24 @@ public class Model extends Observable
      * by e.
      *
      * @param e On map coordinates.
-     * @throws NoPathFoundException If no point is within a distance specified
-     * by the kd-tree.
+     * @throws NoPathFoundException If there are no roads to snap to.
      */
     public void setFromNode(Point2D e) throws NoPathFoundException
     {
-        Edge near = nearest(e, false);
+        Edge near = nearest(e, false, Double.POSITIVE_INFINITY);
         if (near == null) {
             throw new NoPathFoundException("No nearest point was found");
         }
-        Node nodeFrom = near.from();
-        Node nodeTo = near.to();
+        int nodeFrom = near.from();
+        int nodeTo = near.to();
 
-        if (new Point.Double(nodeFrom.x(), nodeFrom.y()).distance(e)
-                < new Point.Double(nodeTo.x(), nodeTo.y()).distance(e)) {
-            from = nodeFrom.id();
+        if (e.distance(nodes.x(nodeFrom), nodes.y(nodeFrom))
+                < e.distance(nodes.x(nodeTo), nodes.y(nodeTo))) {
+            from = nodeFrom;
         } else {
-            from = nodeTo.id();
+            from = nodeTo;
         }
-        sourceChanged = true;
+        updateRoute();
         setChanged();
     }
 
@@ -634,48 +793,103 @@ public class Model extends Observable
      * by e.
      *
      * @param e On map coordinates.
-     * @throws NoPathFoundException If no point is within a distance specified
-     * by the kd-tree.
+     * @throws NoPathFoundException If there are no roads to snap to.
      */
     public void setToNode(Point2D e) throws NoPathFoundException
     {
-        Edge near = nearest(e, false);
+        Edge near = nearest(e, false, Double.POSITIVE_INFINITY);
         if (near == null) {
             throw new NoPathFoundException("No nearest point was found");
         }
-        Node nodeFrom = near.from();
-        Node nodeTo = near.to();
+        int nodeFrom = near.from();
+        int nodeTo = near.to();
 
-        if (new Point.Double(nodeFrom.x(), nodeFrom.y()).distance(e) < new Point.Double(nodeTo.x(), nodeTo.y()).distance(e)) {
-            this.to = nodeFrom.id();
+        if (e.distance(nodes.x(nodeFrom), nodes.y(nodeFrom)) < e.distance(nodes.x(nodeTo), nodes.y(nodeTo))) {
+            this.to = nodeFrom;
         } else {
-            this.to = nodeTo.id();
+            this.to = nodeTo;
         }
+        updateRoute();
         setChanged();
     }
 
     /**
-     * Returns the path if one is found.
+     * Starts finding the route between the points, in the background.
      *
-     * @return The path if one is found.
-     * @throws NoPathFoundException If no path is found.
+     * The route that was found before, or is being found, is thrown away. When
+     * the new route is found, the observers are notified with
+     * "updateRoadList", or with "noRoute" if there is none.
      */
-    public Stack<Edge> getPath() throws NoPathFoundException
+    private void updateRoute()
     {
-        if (!sourceChanged && shortestPath.pathByDriveTime() == pathByDriveTime) {
-            if (shortestPath.hasPathTo(to)) {
-                setChanged();
-                return shortestPath.pathTo(to);
-            }
+        final int version = ++routeVersion;
+        route = null;
+        routing = pathPointsSet();
+        if (!routing) {
+            planner.cancel();
+            return;
         }
-        shortestPath = new ShortestPath(g, from, to, pathByDriveTime, nodeMap);
-        sourceChanged = false;
-        if (shortestPath.hasPathTo(to)) {
-            setChanged();
-            return shortestPath.pathTo(to);
-        }
-        setChanged();
-        throw new NoPathFoundException("No path was found");
+        planner.plan(from, to, pathByDriveTime, new RoutePlanner.Listener()
+        {
+
+            @Override
+            public void routeFound(final Route found)
+            {
+                SwingUtilities.invokeLater(new Runnable()
+                {
+
+                    @Override
+                    public void run()
+                    {
+                        if (version == routeVersion) {
+                            route = found;
+                            routing = false;
+                            setChanged();
+                            notifyObservers("updateRoadList");
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void routeNotFound(NoPathFoundException ex)
+            {
+                SwingUtilities.invokeLater(new Runnable()
+                {
+
+                    @Override
+                    public void run()
+                    {
+                        if (version == routeVersion) {
+                            routing = false;
+                            setChanged();
+                            notifyObservers("noRoute");
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns the route between the points, if it has been found.
+     *
+     * @return The route, or null if it is not found (yet).
+     */
+    public Route getRoute()
+    {
+        return route;
+    }
+
+    /**
+     * States whether a route is being found.
+     *
+     * @return True if the search for the route between the points has not
+     * finished yet.
+     */
+    public boolean isRouting()
+    {
+        return routing;
     }
 
     /**
@@ -714,30 +928,25 @@ public class Model extends Observable
     /**
      * Calculates the factor that is used to calculate where the roads should be
      * drawn.
+     *
+     * The factor is the factor of the zoom level that fits the current view,
+     * and the view is widened around its center to fit the factor.
      */
     private void calculateFactor()
     {
         // Ensures that zoom retains the correct ratio between width and screenHeight.
-        ratioX = (rightX - leftX) / screenWidth;
-        ratioY = (topY - bottomY) / screenHeight;
+        double ratioX = (rightX - leftX) / screenWidth;
+        double ratioY = (topY - bottomY) / screenHeight;
+        assert (Math.max(ratioX, ratioY) != 0);
         // This factor determines how big the Map will be drawn.
-        factor = Math.max(ratioX, ratioY);
-        assert (factor != 0);
-    }
-
-    /**
-     * Centers the screen on the map-coordinates supplied.
-     *
-     * @param x
-     * @param y
-     */
-    private void center(double x, double y)
-    {
-        double currentCenterX = (rightX + leftX) / 2;
-        double currentCenterY = (topY + bottomY) / 2;
-
-        moveHorizontal(x - currentCenterX);
-        moveVertical(y - currentCenterY);
+        zoomLevel = zoomLevel(Math.max(ratioX, ratioY));
+        factor = zoomFactor(zoomLevel);
+        double x = (rightX + leftX) / 2;
+        double y = (topY + bottomY) / 2;
+        leftX = x - factor * screenWidth / 2;
+        rightX = x + factor * screenWidth / 2;
+        bottomY = y - factor * screenHeight / 2;
+        topY = y + factor * screenHeight / 2;
     }
 
     /**
@@ -771,59 +980,29 @@ public class Model extends Observable
     /**
      * Finds the nearest edge given a point.
      *
+     * Every road is in the same R-tree, so this is a single search. The
+     * roadtypes that should not be searched are masked out of it.
+     *
      * @param p the point to get nearest edge from
-     * @param factorAware
-     * @return
+     * @param factorAware Whether only the roadtypes shown at the current zoom
+     * level should be searched.
+     * @param maxRadius The greatest distance the edge may have to the point.
+     * @return The nearest edge, or null if there are no edges within
+     * <code>maxRadius</code>.
      */
-    private Edge nearest(Point2D p, boolean factorAware)
+    private Edge nearest(Point2D p, boolean factorAware, double maxRadius)
     {
-        LinkedList<Edge> edges = new LinkedList<>();
-        for (CommonRoadType rt : CommonRoadType.values()) {
-            if (rt == CommonRoadType.PLACES || rt == CommonRoadType.COASTLINE) {
-                continue;
-            }
-            if ((!factorAware || rt.isEnabled(factor)) && treeMap.get(rt) != null) {
-                Edge e = treeMap.get(rt).getNearest(p.getX(), p.getY());
-                if (e != null) {
-                    edges.add(e);
-                }
-            }
+        if (nearestTree == null) {
+            return null;
         }
-
-        Edge near = null;
-        double dist = Double.MAX_VALUE;
-        for (Edge edge : edges) {
-            Point2D start = null;
-            Point2D last = null;
-            for (PathIterator pi = edge.getShape().getPathIterator(null); !pi.isDone(); pi.next()) {
-                double[] coords = new double[6];
-                int type = pi.currentSegment(coords);
-                switch (type) {
-                    case PathIterator.SEG_MOVETO:
-                        start = last = new Point2D.Double(coords[0], coords[1]);
-                        break;
-                    case PathIterator.SEG_LINETO:
-                        Point2D.Double pd = new Point2D.Double(coords[0], coords[1]);
-                        Line2D line = new Line2D.Double(last, pd);
-                        last = pd;
-                        double d = line.ptSegDist(p);
-                        if (d < dist) {
-                            dist = d;
-                            near = edge;
-                        }
-                        break;
-                    case PathIterator.SEG_CLOSE:
-                        line = new Line2D.Double(last, start);
-                        d = line.ptSegDist(p);
-                        if (d < dist) {
-                            dist = d;
-                            near = edge;
-                        }
-                        break;
-                }
+        int layers = 0;
+        for (CommonRoadType rt : CommonRoadType.values()) {
+            if (isRoad(rt) && (!factorAware || rt.isEnabled(factor))) {
+                layers |= rt.getLayer();
             }
         }
-        return near;
+        Edge[] near = nearestTree.getNearest(p.getX(), p.getY(), 1, maxRadius, layers);
+        return near.length > 0 ? near[0] : null;
     }
 
     /**
@@ -0,0 +1,243 @@
+package dk.itu.groupe;
+
+import dk.itu.groupe.data.CommonRoadType;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.RenderingHints;
+
+/**
+ * The colors, strokes and antialiasing used to draw each roadtype.
+ *
+ * The styles are made once, for every roadtype at every level of detail, so
+ * drawing the map only looks them up instead of making new strokes. A table
+ * is never changed after it is made, so another theme is used by giving the
+ * map another table.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class StyleTable
+{
+
+    private final Style[][] styles;
+    private final Style route;
+    private final Color water;
+
+    /**
+     * Creates a new StyleTable.
+     *
+     * @param styles The styles of every roadtype, indexed by the ordinal of
+     * the roadtype and then by the level of detail.
+     * @param route The style of the route.
+     * @param water The color of the water behind the map.
+     */
+    public StyleTable(Style[][] styles, Style route, Color water)
+    {
+        this.styles = styles;
+        this.route = route;
+        this.water = water;
+    }
+
+    /**
+     * Creates the table with the default theme of the map.
+     *
+     * @return The default table.
+     */
+    public static StyleTable createDefault()
+    {
+        int levels = CommonRoadType.getDetailLevel(Double.POSITIVE_INFINITY) + 1;
+        Style[][] styles = new Style[CommonRoadType.values().length][levels];
+        for (CommonRoadType rt : CommonRoadType.values()) {
+            Style style = createDefault(rt);
+            for (int level = 0; level < levels; level++) {
+                styles[rt.ordinal()][level] = style;
+            }
+        }
+        Style route = new Style(Color.BLUE, 5, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, null, true, true);
+        return new StyleTable(styles, route, Color.BLUE.darker().darker());
+    }
+
+    private static Style createDefault(CommonRoadType rt)
+    {
+        switch (rt) {
+            case MOTORWAY:
+            case MOTORWAY_LINK:
+                return new Style(Color.RED, 15);
+            case TRUNK:
+            case TRUNK_LINK:
+                return new Style(Color.ORANGE, 10);
+            case PRIMARY:
+            case PRIMARY_LINK:
+                return new Style(Color.YELLOW, 8);
+            case SECONDARY:
+            case TERTIARY:
+            case TERTIARY_LINK:
+            case ROAD:
+            case UNCLASSIFIED:
+            case SECONDARY_LINK:
+                return new Style(Color.DARK_GRAY, 3);
+            case PATH:
+            case TRACK:
+                return new Style(Color.GRAY, 1);
+            case PEDESTRIAN:
+                return new Style(Color.BLUE, 1);
+            case TUNNEL:
+                return new Style(Color.GREEN, 4);
+            case FERRY:
+                // One pixel wide with dashes of ten pixels.
+                return new Style(Color.BLUE.darker(), 1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, new float[]{10}, true, true);
+            case COASTLINE:
+                return new Style(Color.decode("#96FF70"), 4, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, null, false, false);
+            case RESIDENTIAL:
+                return new Style(Color.DARK_GRAY.darker(), 2);
+            case PLACES:
+                return new Style(Color.BLACK, 4);
+            default:
+                return new Style(Color.MAGENTA, 4);
+        }
+    }
+
+    /**
+     * Returns the style of the roadtype at the level of detail.
+     *
+     * @param rt The roadtype.
+     * @param level The level of detail.
+     * @return The style to draw the roadtype with.
+     */
+    public Style getStyle(CommonRoadType rt, int level)
+    {
+        Style[] levels = styles[rt.ordinal()];
+        return levels[Math.min(level, levels.length - 1)];
+    }
+
+    /**
+     * Returns the style of the route.
+     *
+     * @return The style of the route.
+     */
+    public Style getRouteStyle()
+    {
+        return route;
+    }
+
+    /**
+     * Returns the color of the water behind the map.
+     *
+     * @return The color of the water.
+     */
+    public Color getWaterColor()
+    {
+        return water;
+    }
+
+    /**
+     * How a roadtype is drawn.
+     */
+    public static class Style
+    {
+
+        private final Color color;
+        private final BasicStroke stroke;
+        private final Object antialias;
+        private final boolean scaled;
+        // The stroke scaled to the last factor it was asked for, kept together
+        // so the threads drawing tiles see a matching pair.
+        private volatile Scaled last;
+
+        /**
+         * Creates an antialiased style with a round stroke of the given width
+         * in meters.
+         *
+         * @param color The color.
+         * @param width The width of the stroke in meters.
+         */
+        public Style(Color color, float width)
+        {
+            this(color, width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, null, true, false);
+        }
+
+        /**
+         * Creates a new Style.
+         *
+         * @param color The color.
+         * @param width The width of the stroke.
+         * @param cap The cap of the stroke.
+         * @param join The join of the stroke.
+         * @param dash The dash pattern of the stroke, or null.
+         * @param antialias Whether to antialias.
+         * @param scaled Whether the width and dashes are in pixels, and should
+         * be scaled by the factor, instead of in meters.
+         */
+        public Style(Color color, float width, int cap, int join, float[] dash, boolean antialias, boolean scaled)
+        {
+            this.color = color;
+            this.stroke = new BasicStroke(width, cap, join, 10, dash, 0);
+            this.antialias = antialias ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF;
+            this.scaled = scaled;
+        }
+
+        public Color getColor()
+        {
+            return color;
+        }
+
+        /**
+         * Returns the value of the antialiasing rendering hint.
+         *
+         * @return The value of <code>RenderingHints.KEY_ANTIALIASING</code>.
+         */
+        public Object getAntialias()
+        {
+            return antialias;
+        }
+
+        /**
+         * Returns the stroke to draw with at the factor.
+         *
+         * Strokes in meters are the same at every factor. Strokes in pixels are
+         * scaled to the factor, and the last one is kept, as every tile of a
+         * view is drawn at the same factor.
+         *
+         * @param factor The factor.
+         * @return The stroke.
+         */
+        public BasicStroke getStroke(double factor)
+        {
+            if (!scaled) {
+                return stroke;
+            }
+            Scaled s = last;
+            if (s == null || s.factor != factor) {
+                s = new Scaled(factor, scale(stroke, (float) factor));
+                last = s;
+            }
+            return s.stroke;
+        }
+
+        private static BasicStroke scale(BasicStroke stroke, float factor)
+        {
+            float[] dash = stroke.getDashArray();
+            if (dash != null) {
+                dash = dash.clone();
+                for (int i = 0; i < dash.length; i++) {
+                    dash[i] *= factor;
+                }
+            }
+            return new BasicStroke(stroke.getLineWidth() * factor, stroke.getEndCap(), stroke.getLineJoin(),
+                    stroke.getMiterLimit(), dash, stroke.getDashPhase() * factor);
+        }
+    }
+
+    private static class Scaled
+    {
+
+        final double factor;
+        final BasicStroke stroke;
+
+        Scaled(double factor, BasicStroke stroke)
+        {
+            this.factor = factor;
+            this.stroke = stroke;
+        }
+    }
+}
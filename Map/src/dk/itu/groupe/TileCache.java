@@ -0,0 +1,243 @@
+package dk.itu.groupe;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of rendered map tiles.
+ *
+ * The map is divided into square tiles of <code>TILE_SIZE</code> pixels. The
+ * grid is anchored at the origin of the map coordinates, so a tile covers the
+ * same part of the map as long as the zoom level does not change, and panning
+ * the map only needs the tiles that have come into view to be rendered.
+ *
+ * Tiles are identified by the zoom level they were rendered at and their
+ * position in the grid. The factor of the map is always the factor of a zoom
+ * level, so the tiles of a level are used again when the map is zoomed back to
+ * it. When the images of the cache use more memory than allowed, the
+ * least recently used tiles are removed.
+ *
+ * Every time the cache is cleared it starts a new generation. A tile that was
+ * begun before that can be put with the generation it was begun in, and is
+ * then left out, so a tile drawn the old way is not kept after the clear.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class TileCache
+{
+
+    /**
+     * The width and height of a tile in pixels.
+     */
+    public static final int TILE_SIZE = 256;
+    private final LinkedHashMap<Key, BufferedImage> tiles;
+    private final long maxBytes;
+    private long bytes;
+    private int generation;
+
+    /**
+     * Creates a new empty cache.
+     *
+     * @param maxBytes The greatest amount of memory the images of the cache
+     * may use.
+     */
+    public TileCache(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+        // Ordered by access, so the first entry is the least recently used.
+        tiles = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    /**
+     * Returns the index of the tile column containing the x-coordinate.
+     *
+     * @param x The x-coordinate on the map.
+     * @param factor The factor the tile is rendered at.
+     * @return The column of the tile.
+     */
+    public static int column(double x, double factor)
+    {
+        return (int) Math.floor(x / factor / TILE_SIZE);
+    }
+
+    /**
+     * Returns the index of the tile row containing the y-coordinate.
+     *
+     * Rows are counted downwards, as the rows of pixels on the screen are.
+     *
+     * @param y The y-coordinate on the map.
+     * @param factor The factor the tile is rendered at.
+     * @return The row of the tile.
+     */
+    public static int row(double y, double factor)
+    {
+        return (int) Math.floor(-y / factor / TILE_SIZE);
+    }
+
+    /**
+     * Returns the index of the tile column or row containing the pixel.
+     *
+     * @param pixel The pixel of the map, counted from the origin of the map
+     * coordinates, downwards for rows.
+     * @return The column or row of the tile.
+     */
+    public static int tile(int pixel)
+    {
+        return pixel >= 0 ? pixel / TILE_SIZE : (pixel + 1) / TILE_SIZE - 1;
+    }
+
+    /**
+     * Returns the tile at the given position, or null if it is not in the
+     * cache.
+     *
+     * @param level The zoom level the tile is rendered at.
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @return The image of the tile.
+     */
+    public synchronized BufferedImage get(int level, int column, int row)
+    {
+        return tiles.get(new Key(level, column, row));
+    }
+
+    /**
+     * Puts a rendered tile in the cache, removing the least recently used
+     * tiles if the cache uses too much memory.
+     *
+     * @param level The zoom level the tile is rendered at.
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @param image The image of the tile.
+     */
+    public synchronized void put(int level, int column, int row, BufferedImage image)
+    {
+        BufferedImage old = tiles.put(new Key(level, column, row), image);
+        if (old != null) {
+            bytes -= bytes(old);
+        }
+        bytes += bytes(image);
+        Iterator<Map.Entry<Key, BufferedImage>> it = tiles.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Key, BufferedImage> eldest = it.next();
+            if (eldest.getValue() == image) {
+                // Never remove the tile that was just put in.
+                continue;
+            }
+            bytes -= bytes(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * Puts a rendered tile in the cache, unless the cache has been cleared
+     * since the given generation.
+     *
+     * @param generation The generation the tile was begun in.
+     * @param level The zoom level the tile is rendered at.
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @param image The image of the tile.
+     * @return True if the tile was put in the cache. False otherwise.
+     */
+    public synchronized boolean put(int generation, int level, int column, int row, BufferedImage image)
+    {
+        if (generation != this.generation) {
+            return false;
+        }
+        put(level, column, row, image);
+        return true;
+    }
+
+    /**
+     * Returns the generation of the cache, which changes every time the cache
+     * is cleared.
+     *
+     * @return The generation of the cache.
+     */
+    public synchronized int generation()
+    {
+        return generation;
+    }
+
+    /**
+     * Removes every tile from the cache, and starts a new generation.
+     */
+    public synchronized void clear()
+    {
+        tiles.clear();
+        bytes = 0;
+        generation++;
+    }
+
+    /**
+     * Returns the number of tiles in the cache.
+     *
+     * @return The number of tiles in the cache.
+     */
+    public synchronized int size()
+    {
+        return tiles.size();
+    }
+
+    /**
+     * Returns the memory used by the images in the cache.
+     *
+     * @return The number of bytes used by the images.
+     */
+    public synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+    private static long bytes(BufferedImage image)
+    {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    /**
+     * Identifies a tile by its zoom level and position in the grid.
+     */
+    static class Key
+    {
+
+        private final int level, column, row;
+
+        Key(int level, int column, int row)
+        {
+            this.level = level;
+            this.column = column;
+            this.row = row;
+        }
+
+        /**
+         * Returns whether this is a tile at the given zoom level within the
+         * given columns and rows.
+         */
+        boolean within(int level, int firstColumn, int lastColumn, int firstRow, int lastRow)
+        {
+            return this.level == level
+                    && column >= firstColumn && column <= lastColumn
+                    && row >= firstRow && row <= lastRow;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return level == other.level && column == other.column && row == other.row;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = 31 * level + column;
+            return 31 * hash + row;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package dk.itu.groupe;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.SwingUtilities;
+
+/**
+ * Renders the tiles of the map on a pool of worker threads.
+ *
+ * A tile that is not in the cache is submitted to the pool the first time it
+ * is asked for, and the caller is told when it has been put in the cache, so
+ * the map can be drawn again. Until then the map shows whatever it had
+ * before.
+ *
+ * A tile is only put in the cache if the cache has not been cleared since the
+ * tile was asked for, and the rendering was not cancelled, so a tile drawn
+ * with an old style is never put in the cache after it was cleared.
+ *
+ * A tile that fails to render is printed, and is not rendered again until
+ * the cache is cleared, so it is not tried over and over.
+ *
+ * Every method should be called from the event dispatch thread.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class TileRenderer
+{
+
+    /**
+     * Draws the content of a tile.
+     */
+    public interface Source
+    {
+
+        /**
+         * Renders the tile at the given position of the tile grid.
+         *
+         * This is called from the worker threads, and should stop and return
+         * null if the thread is interrupted.
+         *
+         * @param level The zoom level to render the tile at.
+         * @param column The column of the tile.
+         * @param row The row of the tile.
+         * @return The image of the tile, or null if the rendering was
+         * interrupted.
+         */
+        BufferedImage render(int level, int column, int row);
+    }
+
+    private final TileCache cache;
+    private final Source source;
+    private final Runnable onTile;
+    private final ExecutorService pool;
+    private final Map<TileCache.Key, FutureTask<BufferedImage>> pending;
+    // The tiles that failed to render in the generation of the cache.
+    private final Set<TileCache.Key> failed;
+    private int failedGeneration;
+
+    /**
+     * Creates a new renderer.
+     *
+     * @param cache The cache to put rendered tiles in.
+     * @param source The source that draws the tiles.
+     * @param onTile Run on the event dispatch thread every time a tile has
+     * been put in the cache.
+     */
+    public TileRenderer(TileCache cache, Source source, Runnable onTile)
+    {
+        this.cache = cache;
+        this.source = source;
+        this.onTile = onTile;
+        pending = new HashMap<>();
+        failed = new HashSet<>();
+        // One core is left for the event dispatch thread.
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "Tile renderer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns the tile if it is in the cache. Otherwise the tile is rendered
+     * in the background, and null is returned.
+     *
+     * @param level The zoom level of the tile.
+     * @param column The column of the tile.
+     * @param row The row of the tile.
+     * @return The image of the tile, or null if it is not rendered yet.
+     */
+    public BufferedImage get(final int level, final int column, final int row)
+    {
+        BufferedImage tile = cache.get(level, column, row);
+        if (tile != null) {
+            return tile;
+        }
+        final TileCache.Key key = new TileCache.Key(level, column, row);
+        final int generation = cache.generation();
+        if (generation != failedGeneration) {
+            failed.clear();
+            failedGeneration = generation;
+        }
+        if (pending.containsKey(key) || failed.contains(key)) {
+            return null;
+        }
+        final FutureTask<BufferedImage> task = new FutureTask<BufferedImage>(new Callable<BufferedImage>()
+        {
+
+            @Override
+            public BufferedImage call()
+            {
+                BufferedImage image = source.render(level, column, row);
+                if (image == null || Thread.currentThread().isInterrupted()
+                        || !cache.put(generation, level, column, row, image)) {
+                    return null;
+                }
+                return image;
+            }
+        })
+        {
+
+            @Override
+            protected void done()
+            {
+                if (isCancelled()) {
+                    return;
+                }
+                boolean rendered = true;
+                try {
+                    get();
+                } catch (ExecutionException ex) {
+                    ex.getCause().printStackTrace(System.err);
+                    rendered = false;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                final boolean success = rendered;
+                final FutureTask<BufferedImage> self = this;
+                SwingUtilities.invokeLater(new Runnable()
+                {
+
+                    @Override
+                    public void run()
+                    {
+                        // A cancelled task may finish after the tile was
+                        // asked for again.
+                        if (pending.get(key) == self) {
+                            pending.remove(key);
+                        }
+                        if (success) {
+                            onTile.run();
+                        } else if (generation == failedGeneration) {
+                            failed.add(key);
+                        }
+                    }
+                });
+            }
+        };
+        pending.put(key, task);
+        pool.execute(task);
+        return null;
+    }
+
+    /**
+     * Cancels the tiles that are waiting to be rendered, unless they are at
+     * the given zoom level and within the given columns and rows.
+     *
+     * @param level The zoom level of the tiles that are still wanted.
+     * @param firstColumn The first column still wanted.
+     * @param lastColumn The last column still wanted.
+     * @param firstRow The first row still wanted.
+     * @param lastRow The last row still wanted.
+     */
+    public void retain(int level, int firstColumn, int lastColumn, int firstRow, int lastRow)
+    {
+        Iterator<Map.Entry<TileCache.Key, FutureTask<BufferedImage>>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<TileCache.Key, FutureTask<BufferedImage>> entry = it.next();
+            TileCache.Key key = entry.getKey();
+            if (!key.within(level, firstColumn, lastColumn, firstRow, lastRow)) {
+                entry.getValue().cancel(true);
+                it.remove();
+            }
+        }
+    }
+}
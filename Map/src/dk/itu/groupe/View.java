@@ -1,12 +1,13 @@
 package dk.itu.groupe;
 
 import dk.itu.groupe.data.*;
-import dk.itu.groupe.pathfinding.NoPathFoundException;
+import dk.itu.groupe.pathfinding.Route;
 import dk.itu.groupe.util.*;
 import java.awt.*;
 import java.awt.geom.*;
 import java.awt.image.BufferedImage;
 import java.text.*;
+import java.util.List;
 import java.util.Locale;
 import java.util.Observable;
 import java.util.Observer;
@@ -24,12 +25,12 @@ import javax.swing.*;
 public class View extends JComponent implements Observer
 {
 
-    private final Color BGColor = Color.decode("#457B85"), groundColor = Color.decode("#96FF70");
+    private final Color BGColor = Color.decode("#457B85");
     private final DecimalFormat df = new DecimalFormat("#.##", new DecimalFormatSymbols(Locale.ENGLISH));
     private final Font uiFont = new Font("calibri", Font.PLAIN, 15);
     private final ImageIcon fromFlag = new ImageIcon("./res/flag_point_1.png"),
             toFlag = new ImageIcon("./res/flag_point_2.png");
-    private final JComponent map;
+    private final MapView map;
     private final JLabel label_path, label_distance, label_time, roadName;
     private final JList<InternalEdge> routingList;
     private final JPanel leftPanel, roadnamePanel;
@@ -203,27 +204,37 @@ public class View extends JComponent implements Observer
         return map;
     }
 
+    /**
+     * Changes the theme of the map.
+     *
+     * The tiles drawn with the old theme are thrown away, and drawn again
+     * with the new one.
+     *
+     * @param styles The styles to draw the map with.
+     */
+    public void setStyleTable(StyleTable styles)
+    {
+        map.setStyleTable(styles);
+    }
+
     /**
      * Updates the list in the left panel with the new path if any.
+     *
+     * While the route is being found, the panel says so.
      */
     public void updatePathList()
     {
-        Stack<Edge> edges = null;
-        try {
-            if (model.pathPointsSet()) {
-                edges = model.getPath();
-            }
-        } catch (NoPathFoundException ex) {
-            showErrorMessage(ex.getMessage());
-        }
-        if (edges != null) {
+        Route route = model.getRoute();
+        label_path.setText(model.isRouting() ? "Path: finding route..." : "Path:");
+        if (route != null) {
+            List<Edge> edges = route.getEdges();
             float totalLength = 0;
             float totalTime = 0;
             LinkedList<InternalEdge> routeStack = new LinkedList<>();
             String name = null;
             float length = 0;
-            while (!edges.isEmpty()) {
-                Edge edge = edges.pop();
+            for (int i = 0; i < edges.size(); i++) {
+                Edge edge = edges.get(i);
                 if (name == null) {
                     name = edge.getRoadname();
                     length += edge.getLength();
@@ -240,7 +251,7 @@ public class View extends JComponent implements Observer
                     totalLength += edge.getLength();
                     totalTime += edge.getDriveTime();
                 }
-                if (edges.isEmpty()) {
+                if (i == edges.size() - 1) {
                     if (routeStack.isEmpty() || !routeStack.getLast().name.equals(edge.getRoadname())) {
                         routeStack.add(new InternalEdge(name, length));
                     }
@@ -286,10 +297,13 @@ public class View extends JComponent implements Observer
                 roadName.setText(model.getRoadname());
             } else if (arg.equals("updateRoadList")) {
                 updatePathList();
-                map.repaint();
+                map.frames.request();
+            } else if (arg.equals("noRoute")) {
+                updatePathList();
+                showErrorMessage("No path was found");
             }
         } else {
-            map.repaint();
+            map.frames.request();
         }
     }
 
@@ -303,19 +317,135 @@ public class View extends JComponent implements Observer
         JOptionPane.showMessageDialog(null, message, "Error", JOptionPane.ERROR_MESSAGE);
     }
 
+    /**
+     * Draws the edges it is given by the model.
+     *
+     * The same painter is used for every roadtype of a tile, so drawing the
+     * map does not create a new collection of edges. The edges are drawn at
+     * the level of detail of the current factor.
+     *
+     * Roads are clipped to the rectangle the edges are looked up in, so the
+     * parts outside it are not stroked. Dashed roads are drawn whole, as
+     * clipping them would move their dashes.
+     *
+     * The roads of a roadtype are collected in a single path, which is drawn
+     * when it gets too many points and when <code>flush</code> is called, so
+     * the number of draw calls does not grow with the number of edges.
+     */
+    private class EdgePainter implements EdgeVisitor
+    {
+
+        // The number of points a batch is drawn at.
+        private static final int BATCH_POINTS = 8192;
+        Graphics2D g;
+        CommonRoadType rt;
+        int level;
+        boolean clip;
+        double clipLeft, clipBottom, clipRight, clipTop;
+        private final Path2D batch = new Path2D.Float(Path2D.WIND_NON_ZERO, BATCH_POINTS);
+        private int points;
+
+        @Override
+        public void visit(Edge edge)
+        {
+            if (rt == CommonRoadType.PLACES) {
+                g.drawString(edge.getRoadname(), (int) edge.getCenterX(), (int) edge.getCenterY());
+            } else if (rt == CommonRoadType.COASTLINE) {
+                Shape shape = edge.getShape(level);
+                g.draw(shape);
+                g.fill(shape);
+            } else {
+                if (clip) {
+                    points += edge.getStore().appendClipped(batch, edge.getIndex(), level, clipLeft, clipBottom, clipRight, clipTop);
+                } else {
+                    points += edge.getStore().appendTo(batch, edge.getIndex(), level);
+                }
+                if (points >= BATCH_POINTS) {
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * Draws the roads collected since the last flush.
+         */
+        void flush()
+        {
+            if (points > 0) {
+                g.draw(batch);
+            }
+            // Keeps the arrays of the path, so they are reused.
+            batch.reset();
+            points = 0;
+        }
+    }
+
     private class MapView extends JComponent
     {
 
+        private final TileCache tiles;
+        private final TileRenderer renderer;
+        private final FrameScheduler frames;
+        // Read once by every tile, so a tile is drawn with a single theme.
+        private volatile StyleTable styles = StyleTable.createDefault();
+        // How far outside a tile edges are drawn from, in meters for strokes
+        // and in pixels for place names.
+        private final double strokeMargin = 8, labelMargin = 200;
+        // The frame being drawn, and where the last frame was drawn.
+        private BufferedImage back;
+        private double imageFactor;
+        private int imageX, imageY;
+        // Whether every tile of the last frame was rendered, so it can be
+        // moved instead of composed again.
+        private boolean imageComplete;
+        // The edges of the route in view, which are drawn at once.
+        private final Path2D routePath = new Path2D.Float();
+        private final EdgeVisitor routeCollector = new EdgeVisitor()
+        {
+
+            @Override
+            public void visit(Edge edge)
+            {
+                edge.getStore().appendTo(routePath, edge.getIndex(), 0);
+            }
+        };
+
+        private MapView()
+        {
+            frames = new FrameScheduler(this, Integer.getInteger("map.fps", 60));
+            tiles = new TileCache(Integer.getInteger("tilecache.mb", 64) * 1024L * 1024L);
+            renderer = new TileRenderer(tiles, new TileRenderer.Source()
+            {
+
+                @Override
+                public BufferedImage render(int level, int column, int row)
+                {
+                    return renderTile(Model.zoomFactor(level), column, row);
+                }
+            }, new Runnable()
+            {
+
+                @Override
+                public void run()
+                {
+                    frames.request();
+                }
+            });
+        }
+
         @Override
         public void paintComponent(Graphics g)
         {
-            if (image == null || image.getWidth() != getWidth() || image.getHeight() != getHeight()) {
+            frames.painted();
+            // The last frame is kept when the size changes, so it can be shown
+            // until the tiles of the new size are rendered.
+            if (image == null) {
                 image = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
             }
             Point2D pressed = model.getPressed();
             if (model.getMouseTool() == MouseTool.ZOOM && pressed != null) {
                 Graphics2D gB = (Graphics2D) g;
-                gB.drawImage(image, 0, 0, Color.BLUE.darker().darker(), null);
+                gB.drawImage(image, 0, 0, styles.getWaterColor(), null);
                 AffineTransform at = gB.getTransform();
                 double factor = model.getFactor();
                 Point2D topLeft = model.getLeftTop(), bottomRight = model.getRightBottom();
@@ -352,123 +482,36 @@ public class View extends JComponent implements Observer
                     gB.drawRect((int) x1, (int) y1, side, (int) (y2 - y1));
                 }
                 gB.setTransform(at);
+                drawRoute(gB);
             } else {
-                Graphics2D gB = image.createGraphics();
-                gB.setColor(Color.BLUE.darker().darker());
-                gB.fillRect(0, 0, getWidth(), getHeight());
-                final double factor = model.getFactor();
-                gB.setFont(gB.getFont().deriveFont(AffineTransform.getScaleInstance(factor, -factor)));
-                Point2D topLeft = model.getLeftTop(), bottomRight = model.getRightBottom();
-
-                gB.scale(1 / factor, -1 / factor);
-                gB.translate(-topLeft.getX(), -bottomRight.getY() - (getHeight() * factor));
-
-                for (CommonRoadType rt : CommonRoadType.values()) {
-                    if (rt.isEnabled(factor)) {
-                        gB.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                        gB.setStroke(new BasicStroke(4, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                        switch (rt) {
-                            case MOTORWAY:
-                            case MOTORWAY_LINK:
-                                gB.setStroke(new BasicStroke(15, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                                gB.setColor(Color.RED);
-                                break;
-                            case TRUNK:
-                            case TRUNK_LINK:
-                                gB.setStroke(new BasicStroke(10, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                                gB.setColor(Color.ORANGE);
-                                break;
-                            case PRIMARY:
-                            case PRIMARY_LINK:
-                                gB.setStroke(new BasicStroke(8, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                                gB.setColor(Color.YELLOW);
-                                break;
-                            case SECONDARY:
-                            case TERTIARY:
-                            case TERTIARY_LINK:
-                            case ROAD:
-                            case UNCLASSIFIED:
-                            case SECONDARY_LINK:
-                                gB.setStroke(new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                                gB.setColor(Color.DARK_GRAY);
-                                break;
-                            case PATH:
-                            case TRACK:
-                                gB.setColor(Color.GRAY);
-                                gB.setStroke(new BasicStroke(1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                                break;
-                            case PEDESTRIAN:
-                                gB.setColor(Color.BLUE);
-                                gB.setStroke(new BasicStroke(1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                                break;
-                            case TUNNEL:
-                                gB.setColor(Color.GREEN);
-                                break;
-                            case FERRY:
-                                gB.setStroke(new BasicStroke((float) factor, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10, new float[]{(float) (10 * factor)}, 0));
-                                gB.setColor(Color.BLUE.darker());
-                                break;
-                            case COASTLINE:
-                                gB.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-                                gB.setColor(groundColor);
-                                gB.setStroke(new BasicStroke(4, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                                break;
-                            case RESIDENTIAL:
-                                gB.setColor(Color.DARK_GRAY.darker());
-                                gB.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                                break;
-                            case PLACES:
-                                gB.setColor(Color.BLACK);
-                                break;
-                            default:
-                                gB.setColor(Color.MAGENTA);
-                        }
-                        for (Object ed : model.getEdges(rt, topLeft.getX(), bottomRight.getY(), bottomRight.getX(), topLeft.getY())) {
-                            Edge edge = (Edge) ed;
-                            if (edge.getShape().intersects(topLeft.getX(), bottomRight.getY(), bottomRight.getX() - topLeft.getX(), topLeft.getY() - bottomRight.getY())) {
-                                if (rt == CommonRoadType.PLACES) {
-                                    gB.drawString(edge.getRoadname(), (int) edge.getCenterX(), (int) edge.getCenterY());
-                                    continue;
-                                }
-                                if (rt == CommonRoadType.COASTLINE) {
-                                    gB.draw(edge.getShape());
-                                    gB.fill(edge.getShape());
-                                } else {
-                                    gB.draw(edge.getShape());
-                                }
-                            }
-                        }
-                    }
-                }
-                if (model.pathPointsSet()) {
-                    try {
-                        Stack<Edge> edges = model.getPath();
-                        gB.setColor(Color.BLUE);
-                        gB.setStroke(new BasicStroke(5 * (float) model.getFactor(), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                        while (!edges.isEmpty()) {
-                            Edge ed = edges.pop();
-                            if (ed.getShape().intersects(topLeft.getX(), bottomRight.getY(), bottomRight.getX() - topLeft.getX(), topLeft.getY() - bottomRight.getY())) {
-                                gB.draw(ed.getShape());
-                            }
-                        }
-                    } catch (NoPathFoundException ex) {
-                        showErrorMessage(ex.getMessage());
-                    }
+                double factor = model.getFactor();
+                int level = model.getZoomLevel();
+                double left = model.getLeftTop().getX();
+                double top = model.getRightBottom().getY() + getHeight() * factor;
+                // The pixel of the map at the top left corner of the screen.
+                int originX = (int) Math.floor(left / factor);
+                int originY = (int) Math.floor(-top / factor);
+                renderer.retain(level, TileCache.column(left, factor), TileCache.column(left + getWidth() * factor, factor),
+                        TileCache.row(top, factor), TileCache.row(top - getHeight() * factor, factor));
+                if (!shiftImage(factor, level, originX, originY)) {
+                    composeImage(factor, level, originX, originY);
                 }
-                Graphics2D g2 = (Graphics2D) g;
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.drawImage(image, 0, 0, null);
+                imageFactor = factor;
+                imageX = originX;
+                imageY = originY;
+                g.drawImage(image, 0, 0, null);
+                drawRoute((Graphics2D) g);
             }
             if (model.fromPoint() != null) {
-                Node fromPoint = model.fromPoint();
-                int x = (int) ((fromPoint.x() - model.getLeftTop().x) / model.getFactor()) - toFlag.getIconWidth();
-                int y = getHeight() - (int) ((fromPoint.y() - model.getRightBottom().y) / model.getFactor()) - toFlag.getIconHeight();
+                Point2D fromPoint = model.fromPoint();
+                int x = (int) ((fromPoint.getX() - model.getLeftTop().x) / model.getFactor()) - toFlag.getIconWidth();
+                int y = getHeight() - (int) ((fromPoint.getY() - model.getRightBottom().y) / model.getFactor()) - toFlag.getIconHeight();
                 g.drawImage(fromFlag.getImage(), x, y, null);
             }
             if (model.toPoint() != null) {
-                Node toPoint = model.toPoint();
-                int x = (int) ((toPoint.x() - model.getLeftTop().x) / model.getFactor()) - toFlag.getIconWidth();
-                int y = getHeight() - (int) ((toPoint.y() - model.getRightBottom().y) / model.getFactor()) - toFlag.getIconHeight();
+                Point2D toPoint = model.toPoint();
+                int x = (int) ((toPoint.getX() - model.getLeftTop().x) / model.getFactor()) - toFlag.getIconWidth();
+                int y = getHeight() - (int) ((toPoint.getY() - model.getRightBottom().y) / model.getFactor()) - toFlag.getIconHeight();
                 g.drawImage(toFlag.getImage(), x, y, null);
             }
             g.setColor(BGColor);
@@ -478,6 +521,219 @@ public class View extends JComponent implements Observer
             g.drawLine(15, 0, 15, getHeight());
         }
 
+        /**
+         * Moves the last frame by the pixels the map has been moved since,
+         * and draws the tiles of the strips that have come into view.
+         *
+         * This is only done when the last frame was drawn at the same factor
+         * and size, and was made of tiles only, and when every tile of the
+         * strips is rendered. Otherwise the frame has to be composed again.
+         *
+         * @return Whether the frame was moved.
+         */
+        private boolean shiftImage(double factor, int level, int originX, int originY)
+        {
+            int width = getWidth(), height = getHeight();
+            int dx = imageX - originX, dy = imageY - originY;
+            if (!imageComplete || imageFactor != factor || image.getWidth() != width || image.getHeight() != height
+                    || Math.abs(dx) >= width || Math.abs(dy) >= height) {
+                return false;
+            }
+            if (dx == 0 && dy == 0) {
+                return true;
+            }
+            // The strips of the screen that were not in the last frame. The
+            // corner they share is drawn twice.
+            Rectangle columns = new Rectangle(dx > 0 ? 0 : width + dx, 0, Math.abs(dx), height);
+            Rectangle rows = new Rectangle(0, dy > 0 ? 0 : height + dy, width, Math.abs(dy));
+            if (!tilesRendered(level, originX, originY, columns) || !tilesRendered(level, originX, originY, rows)) {
+                return false;
+            }
+            Graphics2D gI = image.createGraphics();
+            gI.copyArea(0, 0, width, height, dx, dy);
+            drawTiles(gI, level, originX, originY, columns);
+            drawTiles(gI, level, originX, originY, rows);
+            gI.dispose();
+            return true;
+        }
+
+        /**
+         * Draws a new frame from the tiles. Tiles that are not rendered yet
+         * are asked for, and the last frame is shown in their place, moved
+         * and scaled to the current view.
+         */
+        private void composeImage(double factor, int level, int originX, int originY)
+        {
+            if (back == null || back.getWidth() != getWidth() || back.getHeight() != getHeight()) {
+                back = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
+            }
+            Graphics2D gB = back.createGraphics();
+            gB.setColor(styles.getWaterColor());
+            gB.fillRect(0, 0, getWidth(), getHeight());
+            if (imageFactor > 0) {
+                AffineTransform at = gB.getTransform();
+                gB.translate(-originX, -originY);
+                gB.scale(imageFactor / factor, imageFactor / factor);
+                gB.translate(imageX, imageY);
+                gB.drawImage(image, 0, 0, null);
+                gB.setTransform(at);
+            }
+            imageComplete = drawTiles(gB, level, originX, originY, new Rectangle(0, 0, getWidth(), getHeight()));
+            gB.dispose();
+            BufferedImage drawn = back;
+            back = image;
+            image = drawn;
+        }
+
+        /**
+         * Returns whether every tile covering the area of the screen is
+         * rendered. The tiles that are not are asked for.
+         */
+        private boolean tilesRendered(int level, int originX, int originY, Rectangle area)
+        {
+            boolean rendered = true;
+            int lastColumn = TileCache.tile(originX + area.x + area.width - 1);
+            int lastRow = TileCache.tile(originY + area.y + area.height - 1);
+            for (int column = TileCache.tile(originX + area.x); column <= lastColumn; column++) {
+                for (int row = TileCache.tile(originY + area.y); row <= lastRow; row++) {
+                    rendered &= renderer.get(level, column, row) != null;
+                }
+            }
+            return rendered;
+        }
+
+        /**
+         * Draws the tiles covering the area of the screen, clipped to the
+         * area.
+         *
+         * @return Whether every tile was rendered.
+         */
+        private boolean drawTiles(Graphics2D g, int level, int originX, int originY, Rectangle area)
+        {
+            boolean rendered = true;
+            int size = TileCache.TILE_SIZE;
+            Shape clip = g.getClip();
+            g.clip(area);
+            int lastColumn = TileCache.tile(originX + area.x + area.width - 1);
+            int lastRow = TileCache.tile(originY + area.y + area.height - 1);
+            for (int column = TileCache.tile(originX + area.x); column <= lastColumn; column++) {
+                for (int row = TileCache.tile(originY + area.y); row <= lastRow; row++) {
+                    BufferedImage tile = renderer.get(level, column, row);
+                    if (tile != null) {
+                        g.drawImage(tile, column * size - originX, row * size - originY, null);
+                    } else {
+                        rendered = false;
+                    }
+                }
+            }
+            g.setClip(clip);
+            return rendered;
+        }
+
+        /**
+         * Draws the route on top of the map.
+         *
+         * The route changes without the map changing, so it is not part of
+         * the tiles or the frame. Only the edges of the route in view are
+         * looked up, and they are drawn as a single path.
+         */
+        private void drawRoute(Graphics2D g)
+        {
+            Route route = model.getRoute();
+            if (route == null) {
+                return;
+            }
+            double factor = model.getFactor();
+            double left = model.getLeftTop().getX();
+            double bottom = model.getRightBottom().getY();
+            double right = left + getWidth() * factor, top = bottom + getHeight() * factor;
+            Graphics2D gR = (Graphics2D) g.create();
+            StyleTable.Style style = styles.getRouteStyle();
+            gR.setRenderingHint(RenderingHints.KEY_ANTIALIASING, style.getAntialias());
+            // Moved to the same whole pixel as the tiles.
+            gR.scale(1 / factor, -1 / factor);
+            gR.translate(-Math.floor(left / factor) * factor, Math.floor(-top / factor) * factor);
+            gR.setColor(style.getColor());
+            BasicStroke stroke = style.getStroke(factor);
+            gR.setStroke(stroke);
+            // Edges just outside the view still reach into it with the width
+            // of the stroke.
+            double margin = stroke.getLineWidth();
+            routePath.reset();
+            route.getEdges(left - margin, bottom - margin, right + margin, top + margin, routeCollector);
+            gR.draw(routePath);
+            gR.dispose();
+        }
+
+        /**
+         * Renders the tile at the given position of the tile grid.
+         *
+         * Edges are looked up a bit outside the tile, so the parts of wide
+         * roads and place names that reach into the tile are drawn as well.
+         *
+         * This is called from the threads of the tile renderer, so it only
+         * uses the model to look up edges.
+         */
+        private BufferedImage renderTile(double factor, int column, int row)
+        {
+            int size = TileCache.TILE_SIZE;
+            BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = tile.createGraphics();
+            StyleTable table = styles;
+            EdgePainter painter = new EdgePainter();
+            painter.level = CommonRoadType.getDetailLevel(factor);
+            g.setColor(table.getWaterColor());
+            g.fillRect(0, 0, size, size);
+            g.setFont(g.getFont().deriveFont(AffineTransform.getScaleInstance(factor, -factor)));
+            double left = column * size * factor, top = -row * size * factor;
+            double right = left + size * factor, bottom = top - size * factor;
+            g.scale(1 / factor, -1 / factor);
+            g.translate(-left, -top);
+            painter.g = g;
+            for (CommonRoadType rt : CommonRoadType.values()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // The tile is no longer needed.
+                    g.dispose();
+                    return null;
+                }
+                if (rt.isEnabled(factor)) {
+                    StyleTable.Style style = table.getStyle(rt, painter.level);
+                    BasicStroke stroke = style.getStroke(factor);
+                    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, style.getAntialias());
+                    g.setColor(style.getColor());
+                    g.setStroke(stroke);
+                    if (rt == CommonRoadType.COASTLINE) {
+                        Shape land = model.getLand(left, bottom, right, top);
+                        if (land != null) {
+                            g.fill(land);
+                            continue;
+                        }
+                    }
+                    double margin = rt == CommonRoadType.PLACES ? labelMargin * factor : strokeMargin + factor;
+                    painter.rt = rt;
+                    painter.clip = stroke.getDashArray() == null;
+                    painter.clipLeft = left - margin;
+                    painter.clipBottom = bottom - margin;
+                    painter.clipRight = right + margin;
+                    painter.clipTop = top + margin;
+                    model.getEdges(rt, painter.clipLeft, painter.clipBottom, painter.clipRight, painter.clipTop, painter);
+                    painter.flush();
+                }
+            }
+            g.dispose();
+            return tile;
+        }
+
+        private void setStyleTable(StyleTable styles)
+        {
+            this.styles = styles;
+            imageComplete = false;
+            // No columns are wanted, so every pending tile is cancelled.
+            renderer.retain(0, 0, -1, 0, -1);
+            tiles.clear();
+            frames.request();
+        }
+
         @Override
         public Dimension getPreferredSize()
         {
@@ -88,6 +88,12 @@ public enum CommonRoadType
     FERRY(14, CommonRoadType.always);
 
     private final static int always = Integer.MAX_VALUE, secondFactor = 65, thirdFactor = 8, placeNames = 30;
+    /**
+     * The smallest factor every level of detail is drawn at. The levels change
+     * where roadtypes are hidden, as fewer and bigger roads are drawn from
+     * there.
+     */
+    private final static double[] detailFactors = {0, thirdFactor, secondFactor, 4 * secondFactor};
     private final int type;
     private final int factorActivate;
 
@@ -106,4 +112,59 @@ public enum CommonRoadType
     {
         return factorActivate >= factor;
     }
+
+    /**
+     * Returns the number of levels of detail this roadtype is drawn at.
+     *
+     * A level is only counted if the roadtype is drawn at factors above the
+     * smallest factor of the level, as a roadtype that is hidden there would
+     * only use it at that one factor.
+     *
+     * @return The number of levels of detail, including the full geometry.
+     */
+    public int getDetailLevels()
+    {
+        int levels = 1;
+        while (levels < detailFactors.length && detailFactors[levels] < factorActivate) {
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * Returns the level of detail edges should be drawn with at the factor.
+     *
+     * @param factor The current factor.
+     * @return The level of detail, where 0 is the full geometry.
+     */
+    public static int getDetailLevel(double factor)
+    {
+        int level = 0;
+        while (level + 1 < detailFactors.length && detailFactors[level + 1] <= factor) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Returns how far from the full geometry the simplified edges of the level
+     * may be. This is half a pixel at the smallest factor of the level.
+     *
+     * @param level The level of detail.
+     * @return The tolerance in meters.
+     */
+    public static double getDetailTolerance(int level)
+    {
+        return detailFactors[level] / 2;
+    }
+
+    /**
+     * Returns the bit representing this roadtype in a mask of layers.
+     *
+     * @return The bit representing this roadtype.
+     */
+    public int getLayer()
+    {
+        return 1 << ordinal();
+    }
 }
@@ -1,11 +1,13 @@
 package dk.itu.groupe.data;
 
 import java.awt.Shape;
-import java.awt.geom.Path2D;
 
 /**
  * Represents an edge (Which is the same as a road in this program).
  *
+ * The geometry of the edge is kept in an EdgeStore, so the edge itself only
+ * knows the information about the road.
+ *
  * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp; Mikael
  * Jepsen (mlin@itu.dk)
  */
@@ -17,70 +19,59 @@ public class Edge
     private final float length;
     private final float driveTime;
     private final OneWay oneWay;
-    private final Shape path;
-    private Node[] nodes;
-    private final float centerX, centerY;
+    private final EdgeStore store;
+    private final int index;
 
-    public Edge(Node[] nodes)
+    public Edge(EdgeStore store, int index)
     {
         type = CommonRoadType.COASTLINE;
         roadname = null;
         length = 0;
         driveTime = 0;
         oneWay = null;
-        float xMin = nodes[0].x();
-        float xMax = nodes[0].x();
-        float yMin = nodes[0].y();
-        float yMax = nodes[0].y();
-        Path2D p = new Path2D.Float();
-        p.moveTo(nodes[0].x(), nodes[0].y());
-        for (int i = 1; i < nodes.length; i++) {
-            xMin = Math.min(xMin, nodes[i].x());
-            yMin = Math.min(yMin, nodes[i].y());
-            xMax = Math.max(xMax, nodes[i].x());
-            yMax = Math.max(yMax, nodes[i].y());
-            p.lineTo(nodes[i].x(), nodes[i].y());
-        }
-        p.closePath();
-        path = p;
-        centerX = (xMin + xMax) / 2;
-        centerY = (yMin + yMax) / 2;
-    }
-
-    public Edge(CommonRoadType type, String roadname, float length, float driveTime, OneWay oneWay, Node[] nodes)
+        this.store = store;
+        this.index = index;
+    }
+
+    public Edge(CommonRoadType type, String roadname, float length, float driveTime, OneWay oneWay, EdgeStore store, int index)
     {
         this.type = type;
         this.roadname = roadname;
         this.length = length;
         this.driveTime = driveTime;
         this.oneWay = oneWay;
-        this.nodes = nodes;
-        float xMin = nodes[0].x();
-        float xMax = nodes[0].x();
-        float yMin = nodes[0].y();
-        float yMax = nodes[0].y();
-        Path2D p = new Path2D.Double();
-        p.moveTo(nodes[0].x(), nodes[0].y());
-        for (int i = 1; i < nodes.length; i++) {
-            xMin = Math.min(xMin, nodes[i].x());
-            yMin = Math.min(yMin, nodes[i].y());
-            xMax = Math.max(xMax, nodes[i].x());
-            yMax = Math.max(yMax, nodes[i].y());
-            p.lineTo(nodes[i].x(), nodes[i].y());
-        }
-        path = p;
-        centerX = (xMin + xMax) / 2;
-        centerY = (yMin + yMax) / 2;
-    }
-    
+        this.store = store;
+        this.index = index;
+    }
+
     public CommonRoadType getType()
     {
         return type;
     }
 
+    /**
+     * Builds a new Shape of this edge.
+     *
+     * The shape is not kept, so this should not be used where the geometry can
+     * be read from the EdgeStore directly.
+     *
+     * @return A new Shape of this edge.
+     */
     public Shape getShape()
     {
-        return path;
+        return store.getShape(index);
+    }
+
+    /**
+     * Builds a new simplified Shape of this edge.
+     *
+     * @param level The level of detail, where 0 is the full geometry.
+     * @return A new Shape of this edge.
+     * @see CommonRoadType#getDetailLevel(double)
+     */
+    public Shape getShape(int level)
+    {
+        return store.getShape(index, level);
     }
 
     public String getRoadname()
@@ -93,14 +84,14 @@ public class Edge
         return driveTime;
     }
 
-    public Node from()
+    public int from()
     {
-        return nodes[0];
+        return store.from(index);
     }
 
-    public Node to()
+    public int to()
     {
-        return nodes[nodes.length - 1];
+        return store.to(index);
     }
 
     public float getLength()
@@ -113,13 +104,49 @@ public class Edge
         return oneWay;
     }
 
+    public EdgeStore getStore()
+    {
+        return store;
+    }
+
+    public int getIndex()
+    {
+        return index;
+    }
+
     public float getCenterX()
     {
-        return centerX;
+        return (store.getXMin(index) + store.getXMax(index)) / 2;
     }
 
     public float getCenterY()
     {
-        return centerY;
+        return (store.getYMin(index) + store.getYMax(index)) / 2;
+    }
+
+    /**
+     * States whether this edge intersects the rectangle.
+     *
+     * @param x The left x-coordinate of the rectangle.
+     * @param y The bottom y-coordinate of the rectangle.
+     * @param w The width of the rectangle.
+     * @param h The height of the rectangle.
+     * @return True if the edge intersects the rectangle, false otherwise.
+     */
+    public boolean intersects(double x, double y, double w, double h)
+    {
+        return store.intersects(index, x, y, w, h);
+    }
+
+    /**
+     * Returns the shortest distance from the point to this edge.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @return The shortest distance from the point to this edge.
+     */
+    public double distance(double x, double y)
+    {
+        return store.distance(index, x, y);
     }
 }
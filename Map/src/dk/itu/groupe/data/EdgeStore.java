@@ -0,0 +1,579 @@
+package dk.itu.groupe.data;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+
+/**
+ * Stores the geometry of a set of edges.
+ *
+ * Instead of every edge having its own Shape, the node ids of all the edges are
+ * packed into one shared array. The nodes of edge <code>e</code> are found
+ * from <code>offsets[e]</code> (inclusive) to <code>offsets[e + 1]</code>
+ * (exclusive), and the coordinates are looked up in the NodeStore. Shapes are
+ * only built when they are asked for, and hit-testing is done directly on the
+ * packed data.
+ *
+ * The bounding box of every edge is stored as well, as it is used when
+ * building and searching the spatial structures.
+ *
+ * Simplified versions of the edges can be built for drawing the map at a
+ * distance. Every level of detail is packed in the same way as the full
+ * geometry, and level 0 is the full geometry itself.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class EdgeStore
+{
+
+    private final NodeStore nodes;
+    private final boolean closed;
+    private int[] offsets;
+    private int[] refs;
+    private float[] bounds;
+    private int size;
+    private int[][] levelOffsets, levelRefs;
+
+    /**
+     * Creates a new empty EdgeStore.
+     *
+     * @param nodes The coordinates of the nodes the edges refer to.
+     * @param closed Whether the edges are closed polygons (coastline) or open
+     * polylines (roads).
+     */
+    public EdgeStore(NodeStore nodes, boolean closed)
+    {
+        this.nodes = nodes;
+        this.closed = closed;
+        offsets = new int[17];
+        refs = new int[64];
+        bounds = new float[64];
+        size = 0;
+    }
+
+    /**
+     * Adds an edge going through the first <code>count</code> node ids of
+     * <code>nodeIds</code>.
+     *
+     * The ids are copied, so the array can be reused by the caller.
+     *
+     * @param nodeIds The ids of the nodes of the edge, in order.
+     * @param count The number of nodes in the edge.
+     * @return The index of the new edge in this store.
+     * @throws IllegalArgumentException If the edge has no nodes.
+     */
+    public int add(int[] nodeIds, int count)
+    {
+        if (count <= 0) {
+            throw new IllegalArgumentException("An edge needs at least one node");
+        }
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            bounds = Arrays.copyOf(bounds, offsets.length * 4);
+        }
+        int start = offsets[size];
+        if (start + count > refs.length) {
+            refs = Arrays.copyOf(refs, Math.max(refs.length * 2, start + count));
+        }
+        System.arraycopy(nodeIds, 0, refs, start, count);
+        offsets[size + 1] = start + count;
+
+        float xMin = nodes.x(nodeIds[0]), xMax = xMin;
+        float yMin = nodes.y(nodeIds[0]), yMax = yMin;
+        for (int i = 1; i < count; i++) {
+            xMin = Math.min(xMin, nodes.x(nodeIds[i]));
+            yMin = Math.min(yMin, nodes.y(nodeIds[i]));
+            xMax = Math.max(xMax, nodes.x(nodeIds[i]));
+            yMax = Math.max(yMax, nodes.y(nodeIds[i]));
+        }
+        bounds[4 * size] = xMin;
+        bounds[4 * size + 1] = yMin;
+        bounds[4 * size + 2] = xMax;
+        bounds[4 * size + 3] = yMax;
+        return size++;
+    }
+
+    /**
+     * Shrinks the internal arrays to fit the edges in the store.
+     *
+     * Should be called when no more edges are going to be added.
+     */
+    public void trim()
+    {
+        offsets = Arrays.copyOf(offsets, size + 1);
+        refs = Arrays.copyOf(refs, offsets[size]);
+        bounds = Arrays.copyOf(bounds, 4 * size);
+    }
+
+    /**
+     * Builds the simplified levels of detail of the edges, using the
+     * Douglas-Peucker algorithm.
+     *
+     * Level <code>i + 1</code> leaves out the nodes that are no further than
+     * <code>tolerances[i]</code> from the simplified edge. The first and last
+     * node of an edge are always kept, so edges that meet still do.
+     *
+     * Should be called when no more edges are going to be added.
+     *
+     * @param tolerances The greatest distance a left out node may have to the
+     * simplified edge, for every level after the full geometry.
+     */
+    public void simplify(double[] tolerances)
+    {
+        trim();
+        levelOffsets = new int[tolerances.length + 1][];
+        levelRefs = new int[tolerances.length + 1][];
+        levelOffsets[0] = offsets;
+        levelRefs[0] = refs;
+        int maxLength = 0;
+        for (int e = 0; e < size; e++) {
+            maxLength = Math.max(maxLength, length(e));
+        }
+        boolean[] keep = new boolean[maxLength];
+        int[] stack = new int[2 * maxLength];
+        for (int level = 1; level <= tolerances.length; level++) {
+            double tolerance = tolerances[level - 1] * tolerances[level - 1];
+            int[] o = new int[size + 1];
+            int[] r = new int[Math.max(1, refs.length / 2)];
+            for (int e = 0; e < size; e++) {
+                int start = offsets[e], count = length(e);
+                markKept(start, count, tolerance, keep, stack);
+                if (o[e] + count > r.length) {
+                    r = Arrays.copyOf(r, Math.max(r.length * 2, o[e] + count));
+                }
+                int next = o[e];
+                for (int i = 0; i < count; i++) {
+                    if (keep[i]) {
+                        r[next++] = refs[start + i];
+                    }
+                }
+                o[e + 1] = next;
+            }
+            levelOffsets[level] = o;
+            levelRefs[level] = Arrays.copyOf(r, o[size]);
+        }
+    }
+
+    /**
+     * Marks the nodes of the edge starting at <code>start</code> that are
+     * kept by the Douglas-Peucker algorithm.
+     *
+     * @param tolerance The squared tolerance.
+     */
+    private void markKept(int start, int count, double tolerance, boolean[] keep, int[] stack)
+    {
+        Arrays.fill(keep, 0, count, count <= 2);
+        keep[0] = true;
+        keep[count - 1] = true;
+        int top = 0;
+        if (count > 2) {
+            stack[top++] = 0;
+            stack[top++] = count - 1;
+        }
+        while (top > 0) {
+            int hi = stack[--top], lo = stack[--top];
+            double x1 = nodes.x(refs[start + lo]), y1 = nodes.y(refs[start + lo]);
+            double x2 = nodes.x(refs[start + hi]), y2 = nodes.y(refs[start + hi]);
+            double max = -1;
+            int farthest = -1;
+            for (int i = lo + 1; i < hi; i++) {
+                int id = refs[start + i];
+                double d = Line2D.ptSegDistSq(x1, y1, x2, y2, nodes.x(id), nodes.y(id));
+                if (d > max) {
+                    max = d;
+                    farthest = i;
+                }
+            }
+            if (max > tolerance) {
+                keep[farthest] = true;
+                if (farthest - lo > 1) {
+                    stack[top++] = lo;
+                    stack[top++] = farthest;
+                }
+                if (hi - farthest > 1) {
+                    stack[top++] = farthest;
+                    stack[top++] = hi;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of levels of detail, including the full geometry.
+     *
+     * @return The number of levels of detail.
+     */
+    public int getLevels()
+    {
+        return levelOffsets == null ? 1 : levelOffsets.length;
+    }
+
+    /**
+     * Returns the number of edges in this store.
+     *
+     * @return The number of edges in this store.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * States whether the edges in this store are closed polygons.
+     *
+     * @return True if the edges are closed polygons, false otherwise.
+     */
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Returns the NodeStore containing the coordinates of the edges.
+     *
+     * @return The NodeStore containing the coordinates of the edges.
+     */
+    public NodeStore getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of nodes in edge <code>e</code>.
+     *
+     * @param e The index of the edge.
+     * @return The number of nodes in the edge.
+     */
+    public int length(int e)
+    {
+        return offsets[e + 1] - offsets[e];
+    }
+
+    /**
+     * Returns the id of the <code>i</code>'th node in edge <code>e</code>.
+     *
+     * @param e The index of the edge.
+     * @param i The position of the node in the edge.
+     * @return The id of the node.
+     */
+    public int node(int e, int i)
+    {
+        return refs[offsets[e] + i];
+    }
+
+    /**
+     * Returns the id of the first node of edge <code>e</code>.
+     *
+     * @param e The index of the edge.
+     * @return The id of the first node.
+     */
+    public int from(int e)
+    {
+        return refs[offsets[e]];
+    }
+
+    /**
+     * Returns the id of the last node of edge <code>e</code>.
+     *
+     * @param e The index of the edge.
+     * @return The id of the last node.
+     */
+    public int to(int e)
+    {
+        return refs[offsets[e + 1] - 1];
+    }
+
+    public float getXMin(int e)
+    {
+        return bounds[4 * e];
+    }
+
+    public float getYMin(int e)
+    {
+        return bounds[4 * e + 1];
+    }
+
+    public float getXMax(int e)
+    {
+        return bounds[4 * e + 2];
+    }
+
+    public float getYMax(int e)
+    {
+        return bounds[4 * e + 3];
+    }
+
+    /**
+     * Appends the geometry of edge <code>e</code> to the path.
+     *
+     * @param path The path to append to.
+     * @param e The index of the edge.
+     */
+    public void appendTo(Path2D path, int e)
+    {
+        appendTo(path, e, 0);
+    }
+
+    /**
+     * Appends the geometry of edge <code>e</code> at the given level of detail
+     * to the path.
+     *
+     * If the level has not been built, the most simplified level there is is
+     * used.
+     *
+     * @param path The path to append to.
+     * @param e The index of the edge.
+     * @param level The level of detail, where 0 is the full geometry.
+     * @return The number of points appended.
+     */
+    public int appendTo(Path2D path, int e, int level)
+    {
+        int[] o = levelOffsets(level), r = levelRefs(level);
+        int start = o[e], end = o[e + 1];
+        path.moveTo(nodes.x(r[start]), nodes.y(r[start]));
+        for (int i = start + 1; i < end; i++) {
+            path.lineTo(nodes.x(r[i]), nodes.y(r[i]));
+        }
+        if (closed) {
+            path.closePath();
+        }
+        return end - start;
+    }
+
+    /**
+     * Appends the parts of edge <code>e</code> at the given level of detail
+     * that are inside the rectangle to the path.
+     *
+     * Every segment is clipped to the rectangle using the Liang-Barsky
+     * algorithm, and a new subpath is started where the edge comes back into
+     * the rectangle, so the parts that are outside are not stroked. Closed
+     * edges are appended whole, as clipping them like this would not give a
+     * polygon that can be filled.
+     *
+     * @param path The path to append to.
+     * @param e The index of the edge.
+     * @param level The level of detail, where 0 is the full geometry.
+     * @param xMin The left x-coordinate of the rectangle.
+     * @param yMin The bottom y-coordinate of the rectangle.
+     * @param xMax The right x-coordinate of the rectangle.
+     * @param yMax The top y-coordinate of the rectangle.
+     * @return The number of points appended.
+     */
+    public int appendClipped(Path2D path, int e, int level, double xMin, double yMin, double xMax, double yMax)
+    {
+        if (closed || (getXMin(e) >= xMin && getXMax(e) <= xMax && getYMin(e) >= yMin && getYMax(e) <= yMax)) {
+            return appendTo(path, e, level);
+        }
+        int[] o = levelOffsets(level), r = levelRefs(level);
+        int start = o[e], end = o[e + 1];
+        // Whether the path ends where the current segment starts.
+        boolean connected = false;
+        int count = 0;
+        double x1 = nodes.x(r[start]), y1 = nodes.y(r[start]);
+        for (int i = start + 1; i < end; i++) {
+            double x2 = nodes.x(r[i]), y2 = nodes.y(r[i]);
+            double dx = x2 - x1, dy = y2 - y1;
+            double t0 = 0, t1 = 1;
+            boolean visible = true;
+            for (int side = 0; side < 4 && visible; side++) {
+                double p, q;
+                switch (side) {
+                    case 0:
+                        p = -dx;
+                        q = x1 - xMin;
+                        break;
+                    case 1:
+                        p = dx;
+                        q = xMax - x1;
+                        break;
+                    case 2:
+                        p = -dy;
+                        q = y1 - yMin;
+                        break;
+                    default:
+                        p = dy;
+                        q = yMax - y1;
+                }
+                if (p == 0) {
+                    visible = q >= 0;
+                } else if (p < 0) {
+                    double t = q / p;
+                    if (t > t1) {
+                        visible = false;
+                    } else if (t > t0) {
+                        t0 = t;
+                    }
+                } else {
+                    double t = q / p;
+                    if (t < t0) {
+                        visible = false;
+                    } else if (t < t1) {
+                        t1 = t;
+                    }
+                }
+            }
+            if (visible) {
+                if (!connected || t0 > 0) {
+                    path.moveTo(x1 + t0 * dx, y1 + t0 * dy);
+                    count++;
+                }
+                path.lineTo(x1 + t1 * dx, y1 + t1 * dy);
+                count++;
+                connected = t1 == 1;
+            } else {
+                connected = false;
+            }
+            x1 = x2;
+            y1 = y2;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the offsets of the given level of detail, or of the most
+     * simplified level there is.
+     */
+    private int[] levelOffsets(int level)
+    {
+        if (level == 0 || levelOffsets == null) {
+            return offsets;
+        }
+        return levelOffsets[Math.min(level, levelOffsets.length - 1)];
+    }
+
+    private int[] levelRefs(int level)
+    {
+        if (level == 0 || levelRefs == null) {
+            return refs;
+        }
+        return levelRefs[Math.min(level, levelRefs.length - 1)];
+    }
+
+    /**
+     * Builds a new Shape of edge <code>e</code>.
+     *
+     * @param e The index of the edge.
+     * @return A new Shape of the edge.
+     */
+    public Path2D getShape(int e)
+    {
+        return getShape(e, 0);
+    }
+
+    /**
+     * Builds a new Shape of edge <code>e</code> at the given level of detail.
+     *
+     * @param e The index of the edge.
+     * @param level The level of detail, where 0 is the full geometry.
+     * @return A new Shape of the edge.
+     */
+    public Path2D getShape(int e, int level)
+    {
+        Path2D path = new Path2D.Float(Path2D.WIND_NON_ZERO, length(e) + 1);
+        appendTo(path, e, level);
+        return path;
+    }
+
+    /**
+     * States whether edge <code>e</code> intersects the rectangle.
+     *
+     * An open edge intersects the rectangle if one of its segments does. A
+     * closed edge also intersects the rectangle if the rectangle is inside the
+     * polygon.
+     *
+     * @param e The index of the edge.
+     * @param x The left x-coordinate of the rectangle.
+     * @param y The bottom y-coordinate of the rectangle.
+     * @param w The width of the rectangle.
+     * @param h The height of the rectangle.
+     * @return True if the edge intersects the rectangle, false otherwise.
+     */
+    public boolean intersects(int e, double x, double y, double w, double h)
+    {
+        if (getXMax(e) < x || getXMin(e) > x + w || getYMax(e) < y || getYMin(e) > y + h) {
+            return false;
+        }
+        int start = offsets[e], end = offsets[e + 1];
+        double x1 = nodes.x(refs[start]), y1 = nodes.y(refs[start]);
+        if (x1 >= x && x1 <= x + w && y1 >= y && y1 <= y + h) {
+            return true;
+        }
+        for (int i = start + 1; i < end; i++) {
+            double x2 = nodes.x(refs[i]), y2 = nodes.y(refs[i]);
+            if (segmentIntersects(x1, y1, x2, y2, x, y, w, h)) {
+                return true;
+            }
+            x1 = x2;
+            y1 = y2;
+        }
+        if (closed) {
+            return segmentIntersects(x1, y1, nodes.x(refs[start]), nodes.y(refs[start]), x, y, w, h)
+                    || contains(e, x, y);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the shortest distance from the point to edge <code>e</code>.
+     *
+     * @param e The index of the edge.
+     * @param px The x-coordinate of the point.
+     * @param py The y-coordinate of the point.
+     * @return The distance from the point to the nearest segment of the edge.
+     */
+    public double distance(int e, double px, double py)
+    {
+        int start = offsets[e], end = offsets[e + 1];
+        double x1 = nodes.x(refs[start]), y1 = nodes.y(refs[start]);
+        double dist = Math.hypot(px - x1, py - y1);
+        for (int i = start + 1; i < end; i++) {
+            double x2 = nodes.x(refs[i]), y2 = nodes.y(refs[i]);
+            dist = Math.min(dist, Line2D.ptSegDist(x1, y1, x2, y2, px, py));
+            x1 = x2;
+            y1 = y2;
+        }
+        if (closed) {
+            dist = Math.min(dist, Line2D.ptSegDist(x1, y1, nodes.x(refs[start]), nodes.y(refs[start]), px, py));
+        }
+        return dist;
+    }
+
+    /**
+     * States whether the point is inside the polygon formed by edge
+     * <code>e</code>, using the even-odd rule.
+     */
+    private boolean contains(int e, double px, double py)
+    {
+        int start = offsets[e], end = offsets[e + 1];
+        boolean inside = false;
+        double x1 = nodes.x(refs[end - 1]), y1 = nodes.y(refs[end - 1]);
+        for (int i = start; i < end; i++) {
+            double x2 = nodes.x(refs[i]), y2 = nodes.y(refs[i]);
+            if ((y2 > py) != (y1 > py) && px < (x1 - x2) * (py - y2) / (y1 - y2) + x2) {
+                inside = !inside;
+            }
+            x1 = x2;
+            y1 = y2;
+        }
+        return inside;
+    }
+
+    /**
+     * States whether the segment from (x1, y1) to (x2, y2) intersects the
+     * rectangle.
+     */
+    private static boolean segmentIntersects(double x1, double y1, double x2, double y2, double x, double y, double w, double h)
+    {
+        if (Math.max(x1, x2) < x || Math.min(x1, x2) > x + w || Math.max(y1, y2) < y || Math.min(y1, y2) > y + h) {
+            return false;
+        }
+        if (x2 >= x && x2 <= x + w && y2 >= y && y2 <= y + h) {
+            return true;
+        }
+        return Line2D.linesIntersect(x1, y1, x2, y2, x, y, x + w, y)
+                || Line2D.linesIntersect(x1, y1, x2, y2, x + w, y, x + w, y + h)
+                || Line2D.linesIntersect(x1, y1, x2, y2, x + w, y + h, x, y + h)
+                || Line2D.linesIntersect(x1, y1, x2, y2, x, y + h, x, y);
+    }
+}
@@ -0,0 +1,21 @@
+package dk.itu.groupe.data;
+
+/**
+ * A callback that is given the edges found by a search in a spatial structure.
+ *
+ * The edges are handed to the visitor one by one as they are found, so the
+ * search does not need to collect them in a new set on every call.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public interface EdgeVisitor
+{
+
+    /**
+     * Called once for every edge found by the search.
+     *
+     * @param edge The edge that was found.
+     */
+    void visit(Edge edge);
+}
@@ -0,0 +1,146 @@
+package dk.itu.groupe.data;
+
+import java.awt.geom.Path2D;
+
+/**
+ * The land of the map cut into a grid of square cells.
+ *
+ * A cell is either water, land or mixed. Only the mixed cells have geometry,
+ * which is the parts of the coastline polygons inside the cell. The parts are
+ * counter-clockwise, so they can be filled together with the non-zero winding
+ * rule.
+ *
+ * The land within a rectangle can be built from the cells it covers, so the
+ * time it takes to draw the land only depends on the size of the rectangle,
+ * and not on the size of the polygons of the coastline.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class LandMask
+{
+
+    public static final byte WATER = 0, LAND = 1, MIXED = 2;
+    private final double xMin, yMin, cellSize;
+    private final int columns, rows;
+    private final byte[] kinds;
+    private final int[] firstPart, partOffsets;
+    private final float[] points;
+
+    /**
+     * Creates a new LandMask.
+     *
+     * @param xMin The x-coordinate of the left side of the grid.
+     * @param yMin The y-coordinate of the bottom of the grid.
+     * @param cellSize The width and height of the cells.
+     * @param columns The number of columns in the grid.
+     * @param rows The number of rows in the grid.
+     * @param kinds The kind of every cell, row by row from the bottom.
+     * @param firstPart The parts of cell <code>c</code> are from
+     * <code>firstPart[c]</code> (inclusive) to <code>firstPart[c + 1]</code>
+     * (exclusive).
+     * @param partOffsets The points of part <code>p</code> are from
+     * <code>partOffsets[p]</code> (inclusive) to
+     * <code>partOffsets[p + 1]</code> (exclusive).
+     * @param points The x- and y-coordinates of the points after each other.
+     */
+    public LandMask(double xMin, double yMin, double cellSize, int columns, int rows,
+            byte[] kinds, int[] firstPart, int[] partOffsets, float[] points)
+    {
+        this.xMin = xMin;
+        this.yMin = yMin;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.kinds = kinds;
+        this.firstPart = firstPart;
+        this.partOffsets = partOffsets;
+        this.points = points;
+    }
+
+    /**
+     * Returns the kind of the cell containing the point.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @return WATER, LAND or MIXED. Everything outside the grid is water.
+     */
+    public byte getKind(double x, double y)
+    {
+        int column = (int) Math.floor((x - xMin) / cellSize);
+        int row = (int) Math.floor((y - yMin) / cellSize);
+        if (column < 0 || column >= columns || row < 0 || row >= rows) {
+            return WATER;
+        }
+        return kinds[row * columns + column];
+    }
+
+    /**
+     * Builds the land within the rectangle.
+     *
+     * The shape covers every cell the rectangle touches, so it should be
+     * clipped to the rectangle when drawn. Land cells next to each other in a
+     * row are joined into a single rectangle.
+     *
+     * @param leftX The left x-coordinate.
+     * @param bottomY The bottom y-coordinate.
+     * @param rightX The right x-coordinate.
+     * @param topY The top y-coordinate.
+     * @return The land within the rectangle.
+     */
+    public Path2D getLand(double leftX, double bottomY, double rightX, double topY)
+    {
+        Path2D path = new Path2D.Float(Path2D.WIND_NON_ZERO);
+        int c0 = Math.max(0, (int) Math.floor((leftX - xMin) / cellSize));
+        int c1 = Math.min(columns - 1, (int) Math.floor((rightX - xMin) / cellSize));
+        int r0 = Math.max(0, (int) Math.floor((bottomY - yMin) / cellSize));
+        int r1 = Math.min(rows - 1, (int) Math.floor((topY - yMin) / cellSize));
+        for (int row = r0; row <= r1; row++) {
+            int run = -1;
+            for (int column = c0; column <= c1 + 1; column++) {
+                byte kind = column <= c1 ? kinds[row * columns + column] : WATER;
+                if (kind == LAND) {
+                    if (run < 0) {
+                        run = column;
+                    }
+                    continue;
+                }
+                if (run >= 0) {
+                    appendRectangle(path, run, column, row);
+                    run = -1;
+                }
+                if (kind == MIXED) {
+                    appendParts(path, row * columns + column);
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Appends the cells of the row from column <code>from</code> (inclusive)
+     * to <code>to</code> (exclusive) as a counter-clockwise rectangle.
+     */
+    private void appendRectangle(Path2D path, int from, int to, int row)
+    {
+        float x1 = (float) (xMin + from * cellSize), x2 = (float) (xMin + to * cellSize);
+        float y1 = (float) (yMin + row * cellSize), y2 = (float) (yMin + (row + 1) * cellSize);
+        path.moveTo(x1, y1);
+        path.lineTo(x2, y1);
+        path.lineTo(x2, y2);
+        path.lineTo(x1, y2);
+        path.closePath();
+    }
+
+    private void appendParts(Path2D path, int cell)
+    {
+        for (int part = firstPart[cell]; part < firstPart[cell + 1]; part++) {
+            int start = partOffsets[part], end = partOffsets[part + 1];
+            path.moveTo(points[2 * start], points[2 * start + 1]);
+            for (int i = start + 1; i < end; i++) {
+                path.lineTo(points[2 * i], points[2 * i + 1]);
+            }
+            path.closePath();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package dk.itu.groupe.data;
+
+/**
+ * Stores the coordinates of every node in the program.
+ *
+ * Instead of having an object per node, the coordinates are kept in two
+ * primitive arrays indexed by the id of the node. This means a node costs 8
+ * bytes, and a node id is all that is needed to look up a point.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class NodeStore
+{
+
+    private final float[] xs;
+    private final float[] ys;
+
+    /**
+     * Creates a new NodeStore with room for <code>numberOfNodes</code> nodes.
+     *
+     * All coordinates are 0 until they are set.
+     *
+     * @param numberOfNodes The number of nodes (The highest id + 1).
+     */
+    public NodeStore(int numberOfNodes)
+    {
+        xs = new float[numberOfNodes];
+        ys = new float[numberOfNodes];
+    }
+
+    /**
+     * Sets the coordinates of the node with the specified id.
+     *
+     * @param id The id of the node.
+     * @param x The x-coordinate of the node.
+     * @param y The y-coordinate of the node.
+     * @throws ArrayIndexOutOfBoundsException If id is not within the store.
+     */
+    public void set(int id, float x, float y)
+    {
+        xs[id] = x;
+        ys[id] = y;
+    }
+
+    /**
+     * Returns the x-coordinate of the node with the specified id.
+     *
+     * @param id The id of the node.
+     * @return The x-coordinate of the node.
+     */
+    public float x(int id)
+    {
+        return xs[id];
+    }
+
+    /**
+     * Returns the y-coordinate of the node with the specified id.
+     *
+     * @param id The id of the node.
+     * @return The y-coordinate of the node.
+     */
+    public float y(int id)
+    {
+        return ys[id];
+    }
+
+    /**
+     * Returns the number of nodes this store has room for.
+     *
+     * @return The number of nodes this store has room for.
+     */
+    public int size()
+    {
+        return xs.length;
+    }
+}
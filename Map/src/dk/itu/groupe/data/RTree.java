@@ -0,0 +1,404 @@
+package dk.itu.groupe.data;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * An R-tree of edges, keyed on the bounding box of every edge.
+ *
+ * The tree is packed bottom-up using Sort-Tile-Recursive (STR) packing: The
+ * boxes are sorted by their center x-coordinate and cut into vertical slices,
+ * each slice is sorted by the center y-coordinate and cut into nodes of at
+ * most <code>CAPACITY</code> children. This is repeated on the nodes until
+ * only the root is left.
+ *
+ * Because every node knows the bounding box of everything below it, a search
+ * only visits the parts of the tree that can intersect the rectangle, however
+ * long the edges are, and it returns exactly the edges that intersect the
+ * rectangle.
+ *
+ * The nodes are stored in arrays. The leaves are the first
+ * <code>leafCount</code> nodes, and their children are ranges of the edges
+ * array. The children of the other nodes are ranges of the nodes themselves.
+ *
+ * Every node also knows which roadtypes (layers) are found below it, so a
+ * tree holding several roadtypes can be searched for some of them only.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class RTree
+{
+
+    static final int CAPACITY = 16;
+    /**
+     * A mask containing every layer.
+     */
+    public static final int ALL_LAYERS = ~0;
+    final Edge[] edges;
+    private final float[] edgeBounds;
+    private final float[] nodeBounds;
+    private final int[] first, last, layers;
+    private final int leafCount, root;
+
+    /**
+     * Creates an R-tree of the edges.
+     *
+     * The array is reordered to hold the leaves of the tree, so the caller
+     * should not change it afterwards.
+     *
+     * @param edges An array of edges that should be put in the tree.
+     * @throws IndexOutOfBoundsException If the array of edges is empty.
+     */
+    public RTree(Edge[] edges)
+    {
+        if (edges.length == 0) {
+            throw new IndexOutOfBoundsException("An RTree needs at least one edge");
+        }
+        this.edges = edges;
+
+        // Sort the edges into leaves.
+        float[] bounds = new float[4 * edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            EdgeStore store = edges[i].getStore();
+            int index = edges[i].getIndex();
+            bounds[4 * i] = store.getXMin(index);
+            bounds[4 * i + 1] = store.getYMin(index);
+            bounds[4 * i + 2] = store.getXMax(index);
+            bounds[4 * i + 3] = store.getYMax(index);
+        }
+        int[] order = pack(bounds, edges.length);
+        Edge[] sorted = new Edge[edges.length];
+        edgeBounds = new float[bounds.length];
+        int[] edgeLayers = new int[edges.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = edges[order[i]];
+            System.arraycopy(bounds, 4 * order[i], edgeBounds, 4 * i, 4);
+            edgeLayers[i] = layer(sorted[i]);
+        }
+        System.arraycopy(sorted, 0, edges, 0, edges.length);
+
+        // Every level has at most a CAPACITY'th of the nodes below it, so
+        // this is enough room for all of them.
+        int maxNodes = 1;
+        for (int n = edges.length; n > 1; n = (n + CAPACITY - 1) / CAPACITY) {
+            maxNodes += (n + CAPACITY - 1) / CAPACITY;
+        }
+        nodeBounds = new float[4 * maxNodes];
+        first = new int[maxNodes];
+        last = new int[maxNodes];
+        layers = new int[maxNodes];
+
+        int count = group(edgeBounds, edgeLayers, edges.length, 0, 0);
+        leafCount = count;
+        int levelStart = 0;
+        while (count - levelStart > 1) {
+            int levelSize = count - levelStart;
+            float[] levelBounds = new float[4 * levelSize];
+            int[] levelLayers = new int[levelSize];
+            System.arraycopy(nodeBounds, 4 * levelStart, levelBounds, 0, levelBounds.length);
+            order = pack(levelBounds, levelSize);
+            reorderLevel(levelStart, order);
+            System.arraycopy(nodeBounds, 4 * levelStart, levelBounds, 0, levelBounds.length);
+            System.arraycopy(layers, levelStart, levelLayers, 0, levelSize);
+            int next = group(levelBounds, levelLayers, levelSize, levelStart, count);
+            levelStart = count;
+            count = next;
+        }
+        root = count - 1;
+    }
+
+    /**
+     * Orders the boxes using STR, so every run of CAPACITY boxes can become a
+     * node.
+     *
+     * @param bounds The boxes as (xMin, yMin, xMax, yMax).
+     * @param n The number of boxes.
+     * @return The indexes of the boxes in their new order.
+     */
+    private static int[] pack(float[] bounds, int n)
+    {
+        int[] order = new int[n];
+        float[] centerX = new float[n], centerY = new float[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            centerX[i] = (bounds[4 * i] + bounds[4 * i + 2]) / 2;
+            centerY[i] = (bounds[4 * i + 1] + bounds[4 * i + 3]) / 2;
+        }
+        int nodes = (n + CAPACITY - 1) / CAPACITY;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = slices * CAPACITY;
+        sort(order, centerX, 0, n - 1);
+        for (int lo = 0; lo < n; lo += sliceSize) {
+            sort(order, centerY, lo, Math.min(lo + sliceSize, n) - 1);
+        }
+        return order;
+    }
+
+    /**
+     * Sorts order[lo..hi] by the keys of the indexes in it.
+     */
+    private static void sort(int[] order, float[] keys, int lo, int hi)
+    {
+        while (lo < hi) {
+            float pivot = keys[order[(lo + hi) >>> 1]];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[order[i]] < pivot) {
+                    i++;
+                }
+                while (keys[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i++] = order[j];
+                    order[j--] = tmp;
+                }
+            }
+            // Recurse into the smaller part, and loop on the larger one.
+            if (j - lo < hi - i) {
+                sort(order, keys, lo, j);
+                lo = i;
+            } else {
+                sort(order, keys, i, hi);
+                hi = j;
+            }
+        }
+    }
+
+    /**
+     * Moves the nodes of a level into the order given by STR, and keeps the
+     * children of each node with it.
+     */
+    private void reorderLevel(int levelStart, int[] order)
+    {
+        int n = order.length;
+        float[] b = new float[4 * n];
+        int[] f = new int[n], l = new int[n], m = new int[n];
+        for (int i = 0; i < n; i++) {
+            int from = levelStart + order[i];
+            System.arraycopy(nodeBounds, 4 * from, b, 4 * i, 4);
+            f[i] = first[from];
+            l[i] = last[from];
+            m[i] = layers[from];
+        }
+        System.arraycopy(b, 0, nodeBounds, 4 * levelStart, b.length);
+        System.arraycopy(f, 0, first, levelStart, n);
+        System.arraycopy(l, 0, last, levelStart, n);
+        System.arraycopy(m, 0, layers, levelStart, n);
+    }
+
+    /**
+     * Creates a node for every run of CAPACITY children.
+     *
+     * @param childBounds The boxes of the children, in packed order.
+     * @param childLayers The layers of the children, in packed order.
+     * @param n The number of children.
+     * @param childStart The index of the first child.
+     * @param next The index of the first new node.
+     * @return The index after the last new node.
+     */
+    private int group(float[] childBounds, int[] childLayers, int n, int childStart, int next)
+    {
+        for (int lo = 0; lo < n; lo += CAPACITY) {
+            int hi = Math.min(lo + CAPACITY, n);
+            float xMin = Float.POSITIVE_INFINITY, yMin = Float.POSITIVE_INFINITY;
+            float xMax = Float.NEGATIVE_INFINITY, yMax = Float.NEGATIVE_INFINITY;
+            int mask = 0;
+            for (int i = lo; i < hi; i++) {
+                mask |= childLayers[i];
+                xMin = Math.min(xMin, childBounds[4 * i]);
+                yMin = Math.min(yMin, childBounds[4 * i + 1]);
+                xMax = Math.max(xMax, childBounds[4 * i + 2]);
+                yMax = Math.max(yMax, childBounds[4 * i + 3]);
+            }
+            nodeBounds[4 * next] = xMin;
+            nodeBounds[4 * next + 1] = yMin;
+            nodeBounds[4 * next + 2] = xMax;
+            nodeBounds[4 * next + 3] = yMax;
+            layers[next] = mask;
+            first[next] = childStart + lo;
+            last[next] = childStart + hi;
+            next++;
+        }
+        return next;
+    }
+
+    /**
+     * Returns the nearest edge within <code>maxRadius</code> of the point.
+     *
+     * @param x The x-coordinate to look near.
+     * @param y The y-coordinate to look near.
+     * @param maxRadius The greatest distance the edge may have to the point.
+     * @return The edge that is nearest to the coordinates, or null if there
+     * are no edges within <code>maxRadius</code>.
+     */
+    public Edge getNearest(double x, double y, double maxRadius)
+    {
+        Edge[] nearest = getNearest(x, y, 1, maxRadius, ALL_LAYERS);
+        return nearest.length > 0 ? nearest[0] : null;
+    }
+
+    /**
+     * Returns the <code>k</code> nearest edges within <code>maxRadius</code>
+     * of the point, measured to the nearest segment of each edge.
+     *
+     * The tree is searched best-first: Nodes and edges are taken from a
+     * priority queue in order of their distance to the point, where the
+     * distance to a node is the distance to its bounding box. As no edge below
+     * a node can be closer than its box, an edge taken from the queue is
+     * nearer than everything still in the queue, and the search can stop as
+     * soon as <code>k</code> edges have been taken.
+     *
+     * @param x The x-coordinate to look near.
+     * @param y The y-coordinate to look near.
+     * @param k The maximum number of edges to return.
+     * @param maxRadius The greatest distance an edge may have to the point.
+     * @return The nearest edges ordered by their distance to the point. The
+     * array is shorter than <code>k</code> if there are not enough edges
+     * within <code>maxRadius</code>.
+     */
+    public Edge[] getNearest(double x, double y, int k, double maxRadius)
+    {
+        return getNearest(x, y, k, maxRadius, ALL_LAYERS);
+    }
+
+    /**
+     * Returns the <code>k</code> nearest edges of the given layers within
+     * <code>maxRadius</code> of the point.
+     *
+     * Nodes without any of the layers below them are not searched.
+     *
+     * @param x The x-coordinate to look near.
+     * @param y The y-coordinate to look near.
+     * @param k The maximum number of edges to return.
+     * @param maxRadius The greatest distance an edge may have to the point.
+     * @param layerMask The layers to search, see CommonRoadType.getLayer().
+     * @return The nearest edges ordered by their distance to the point.
+     */
+    public Edge[] getNearest(double x, double y, int k, double maxRadius, int layerMask)
+    {
+        Edge[] nearest = new Edge[k];
+        int found = 0;
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(distance(nodeBounds, root, x, y), root, null));
+        while (found < k && !queue.isEmpty()) {
+            Candidate c = queue.poll();
+            if (c.dist > maxRadius) {
+                break;
+            }
+            if (c.edge != null) {
+                nearest[found++] = c.edge;
+            } else if (c.node < leafCount) {
+                for (int i = first[c.node]; i < last[c.node]; i++) {
+                    if ((layer(edges[i]) & layerMask) != 0 && distance(edgeBounds, i, x, y) <= maxRadius) {
+                        double d = edges[i].distance(x, y);
+                        if (d <= maxRadius) {
+                            queue.add(new Candidate(d, -1, edges[i]));
+                        }
+                    }
+                }
+            } else {
+                for (int child = first[c.node]; child < last[c.node]; child++) {
+                    if ((layers[child] & layerMask) == 0) {
+                        continue;
+                    }
+                    double d = distance(nodeBounds, child, x, y);
+                    if (d <= maxRadius) {
+                        queue.add(new Candidate(d, child, null));
+                    }
+                }
+            }
+        }
+        return found == k ? nearest : Arrays.copyOf(nearest, found);
+    }
+
+    /**
+     * Finds the edges that intersect the rectangle given by the four
+     * parameters, and hands each of them to the visitor.
+     *
+     * Every edge is visited at most once, and nothing is allocated by the
+     * search itself.
+     *
+     * @param leftX The left x-coordinate
+     * @param bottomY The bottom y-coordinate
+     * @param rightX The right x-coordinate
+     * @param topY The top y-coordinate.
+     * @param visitor The visitor that is given the edges that intersect the
+     * rectangle.
+     */
+    public void getEdges(double leftX, double bottomY, double rightX, double topY, EdgeVisitor visitor)
+    {
+        getEdges(root, leftX, bottomY, rightX, topY, visitor);
+    }
+
+    private void getEdges(int node, double leftX, double bottomY, double rightX, double topY, EdgeVisitor visitor)
+    {
+        if (!overlaps(nodeBounds, node, leftX, bottomY, rightX, topY)) {
+            return;
+        }
+        if (node < leafCount) {
+            for (int i = first[node]; i < last[node]; i++) {
+                if (overlaps(edgeBounds, i, leftX, bottomY, rightX, topY)
+                        && edges[i].intersects(leftX, bottomY, rightX - leftX, topY - bottomY)) {
+                    visitor.visit(edges[i]);
+                }
+            }
+        } else {
+            for (int child = first[node]; child < last[node]; child++) {
+                getEdges(child, leftX, bottomY, rightX, topY, visitor);
+            }
+        }
+    }
+
+    /**
+     * Returns the layer of the edge. Edges without a roadtype are in every
+     * layer.
+     */
+    private static int layer(Edge edge)
+    {
+        return edge.getType() != null ? edge.getType().getLayer() : ALL_LAYERS;
+    }
+
+    /**
+     * Returns the distance from the point to the i'th box, which is 0 if the
+     * point is inside the box.
+     */
+    private static double distance(float[] bounds, int i, double x, double y)
+    {
+        double dx = Math.max(0, Math.max(bounds[4 * i] - x, x - bounds[4 * i + 2]));
+        double dy = Math.max(0, Math.max(bounds[4 * i + 1] - y, y - bounds[4 * i + 3]));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static boolean overlaps(float[] bounds, int i, double leftX, double bottomY, double rightX, double topY)
+    {
+        return bounds[4 * i] <= rightX && bounds[4 * i + 2] >= leftX
+                && bounds[4 * i + 1] <= topY && bounds[4 * i + 3] >= bottomY;
+    }
+
+    /**
+     * A node or an edge waiting in the queue of the nearest-search.
+     */
+    private static class Candidate implements Comparable<Candidate>
+    {
+
+        final double dist;
+        final int node;
+        final Edge edge;
+
+        Candidate(double dist, int node, Edge edge)
+        {
+            this.dist = dist;
+            this.node = node;
+            this.edge = edge;
+        }
+
+        @Override
+        public int compareTo(Candidate other)
+        {
+            return Double.compare(dist, other.dist);
+        }
+    }
+}
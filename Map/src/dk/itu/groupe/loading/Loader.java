@@ -1,8 +1,11 @@
 package dk.itu.groupe.loading;
 
 import dk.itu.groupe.data.*;
-import dk.itu.groupe.util.LinkedList;
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,10 +24,14 @@ public class Loader
 
     private final Map<Integer, CommonRoadType> rtMap;
     private final Map<String, String> interner;
+    private char[] utfBuffer;
+    private int[] nodeBuffer;
 
     public Loader()
     {
         interner = new HashMap<>();
+        utfBuffer = new char[64];
+        nodeBuffer = new int[64];
         rtMap = new HashMap<>();
         for (CommonRoadType rt : CommonRoadType.values()) {
             rtMap.put(rt.getTypeNo(), rt);
@@ -39,19 +46,16 @@ public class Loader
      * @param nodeFile The path to the file containing the nodes.
      * @param numberOfNodes The number of nodes that should be loaded (The
      * number of nodes in the file).
-     * @return An array containing all the nodes at their rightful place (Sorted
-     * by ID).
+     * @return A NodeStore containing the coordinates of all the nodes, indexed
+     * by their ID.
      */
-    public Node[] loadNodes(String nodeFile, int numberOfNodes)
+    public NodeStore loadNodes(String nodeFile, int numberOfNodes)
     {
-        Node[] nodes = new Node[numberOfNodes];
-        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(nodeFile)))) {
-            int available;
-            while ((available = dis.available()) > 0) {
-                for (int i = 0; i < available; i += 12) {
-                    Node n = new Node(dis.readInt(), dis.readFloat(), dis.readFloat());
-                    nodes[n.id()] = n;
-                }
+        NodeStore nodes = new NodeStore(numberOfNodes);
+        try {
+            MappedByteBuffer buffer = map(new File(nodeFile));
+            while (buffer.remaining() >= 12) {
+                nodes.set(buffer.getInt(), buffer.getFloat(), buffer.getFloat());
             }
         } catch (IOException ex) {
             ex.printStackTrace(System.err);
@@ -64,96 +68,161 @@ public class Loader
      *
      * @param rt The roadtypes chosen to be shown.
      * @param edgeDir The directory for edges, differs from OSM to Krak.
-     * @param nodeMap An array of type Node containing nodes.
-     * @return A LinkedList containing all the edges of this roadtype.
+     * @param nodeStore The coordinates of the nodes.
+     * @return An array containing all the edges of this roadtype.
      */
-    public LinkedList<Edge> loadEdges(CommonRoadType rt, String edgeDir, final Node[] nodeMap)
+    public Edge[] loadEdges(CommonRoadType rt, String edgeDir, final NodeStore nodeStore)
     {
-        LinkedList<Edge> edges = new LinkedList<>();
         File f = new File(edgeDir + "edges" + rt.getTypeNo() + ".bin");
         if (!f.exists()) {
-            return edges;
-        }
-        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
-            int available;
-            while ((available = dis.available()) > 0) {
-                for (int i = 0; i < available; i += 22) {
-                    CommonRoadType type = rtMap.get(dis.readInt());
-                    assert rt == type;
-                    String roadname = intern(dis.readUTF());
-                    i += roadname.getBytes().length;
-                    float length = dis.readFloat();
-                    float driveTime = dis.readFloat();
-                    OneWay oneWay;
-                    switch (dis.readInt()) {
-                        case -1:
-                            oneWay = OneWay.TO_FROM;
-                            break;
-                        case 0:
-                            oneWay = OneWay.NO;
-                            break;
-                        case 1:
-                            oneWay = OneWay.FROM_TO;
-                            break;
-                        default:
-                            oneWay = OneWay.NO;
-                            System.err.println("Assuming no restrictions on edge.");
-                    }
-                    Node[] nodes = new Node[dis.readInt()];
-                    i += 4 * nodes.length;
-                    for (int j = 0; j < nodes.length; j++) {
-                        nodes[j] = nodeMap[dis.readInt()];
-                    }
-                    edges.add(new Edge(type, roadname, length, driveTime, oneWay, nodes));
+            return new Edge[0];
+        }
+        Edge[] edges = new Edge[64];
+        EdgeStore store = new EdgeStore(nodeStore, false);
+        try {
+            MappedByteBuffer buffer = map(f);
+            while (buffer.hasRemaining()) {
+                CommonRoadType type = rtMap.get(buffer.getInt());
+                assert rt == type;
+                String roadname = intern(readUTF(buffer));
+                float length = buffer.getFloat();
+                float driveTime = buffer.getFloat();
+                OneWay oneWay;
+                switch (buffer.getInt()) {
+                    case -1:
+                        oneWay = OneWay.TO_FROM;
+                        break;
+                    case 0:
+                        oneWay = OneWay.NO;
+                        break;
+                    case 1:
+                        oneWay = OneWay.FROM_TO;
+                        break;
+                    default:
+                        oneWay = OneWay.NO;
+                        System.err.println("Assuming no restrictions on edge.");
                 }
+                // readNodes may replace nodeBuffer, so it is read first.
+                int count = readNodes(buffer);
+                int index = store.add(nodeBuffer, count);
+                if (index == edges.length) {
+                    edges = Arrays.copyOf(edges, edges.length * 2);
+                }
+                edges[index] = new Edge(type, roadname, length, driveTime, oneWay, store, index);
             }
         } catch (IOException ex) {
             ex.printStackTrace(System.err);
         }
-        return edges;
+        store.simplify(tolerances(rt));
+        return Arrays.copyOf(edges, store.size());
     }
 
     /**
      * Loads coastline data from given files: info.bin, nodes.bin, edges.bin
      *
      * @param dir The directory for coastline data.
-     * @return A LinkedList containing all the coastline edges.
+     * @return An array containing all the coastline edges.
      */
-    public LinkedList<Edge> loadCoastline(String dir)
+    public Edge[] loadCoastline(String dir)
     {
-        LinkedList<Edge> edges = new LinkedList<>();
-        Node[] coastlinemap = null;
+        Edge[] edges = new Edge[64];
+        NodeStore coastlinemap = null;
         try (DataInputStream dinfo = new DataInputStream(new BufferedInputStream(new FileInputStream(dir + "info.bin")))) {
-            coastlinemap = new Node[dinfo.readInt()];
+            coastlinemap = new NodeStore(dinfo.readInt());
             dinfo.close();
         } catch (IOException ex) {
             ex.printStackTrace(System.err);
         }
         assert coastlinemap != null;
-        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(dir + "nodes.bin")))) {
-            for (int i = 0; i < coastlinemap.length; i++) {
-                Node n = new Node(dis.readInt(), dis.readFloat(), dis.readFloat());
-                coastlinemap[n.id()] = n;
+        try {
+            MappedByteBuffer buffer = map(new File(dir + "nodes.bin"));
+            for (int i = 0; i < coastlinemap.size(); i++) {
+                coastlinemap.set(buffer.getInt(), buffer.getFloat(), buffer.getFloat());
             }
         } catch (IOException ex) {
             ex.printStackTrace(System.err);
         }
-        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(dir + "edges.bin")))) {
-            int available;
-            while ((available = dis.available()) > 0) {
-                for (int j = 0; j < available; j += 4) {
-                    Node[] nodes = new Node[dis.readInt()];
-                    j += 4 * nodes.length;
-                    for (int i = 0; i < nodes.length; i++) {
-                        nodes[i] = coastlinemap[dis.readInt()];
+        EdgeStore store = new EdgeStore(coastlinemap, true);
+        try {
+            MappedByteBuffer buffer = map(new File(dir + "edges.bin"));
+            while (buffer.hasRemaining()) {
+                // readNodes may replace nodeBuffer, so it is read first.
+                int count = readNodes(buffer);
+                int index = store.add(nodeBuffer, count);
+                if (index == edges.length) {
+                    edges = Arrays.copyOf(edges, edges.length * 2);
+                }
+                edges[index] = new Edge(store, index);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace(System.err);
+        }
+        store.simplify(tolerances(CommonRoadType.COASTLINE));
+        return Arrays.copyOf(edges, store.size());
+    }
+
+    /**
+     * Loads the land mask written by the ShapeParser from landmask.bin.
+     *
+     * @param dir The directory of the coastline.
+     * @return The land mask, or null if there is no land mask in the
+     * directory.
+     */
+    public LandMask loadLandMask(String dir)
+    {
+        File f = new File(dir + "landmask.bin");
+        if (!f.exists()) {
+            return null;
+        }
+        try {
+            MappedByteBuffer buffer = map(f);
+            double xMin = buffer.getDouble(), yMin = buffer.getDouble(), cellSize = buffer.getDouble();
+            int columns = buffer.getInt(), rows = buffer.getInt();
+            byte[] kinds = new byte[columns * rows];
+            int[] firstPart = new int[kinds.length + 1];
+            int[] partOffsets = new int[64];
+            float[] points = new float[1024];
+            int parts = 0, count = 0;
+            for (int cell = 0; cell < kinds.length; cell++) {
+                kinds[cell] = buffer.get();
+                if (kinds[cell] == LandMask.MIXED) {
+                    int cellParts = buffer.getInt();
+                    for (int i = 0; i < cellParts; i++) {
+                        int n = buffer.getInt();
+                        if (parts + 2 > partOffsets.length) {
+                            partOffsets = Arrays.copyOf(partOffsets, partOffsets.length * 2);
+                        }
+                        if (2 * (count + n) > points.length) {
+                            points = Arrays.copyOf(points, Math.max(points.length * 2, 2 * (count + n)));
+                        }
+                        for (int j = 0; j < 2 * n; j++) {
+                            points[2 * count + j] = buffer.getFloat();
+                        }
+                        count += n;
+                        partOffsets[++parts] = count;
                     }
-                    edges.add(new Edge(nodes));
                 }
+                firstPart[cell + 1] = parts;
             }
+            return new LandMask(xMin, yMin, cellSize, columns, rows, kinds, firstPart,
+                    Arrays.copyOf(partOffsets, parts + 1), Arrays.copyOf(points, 2 * count));
         } catch (IOException ex) {
             ex.printStackTrace(System.err);
         }
-        return edges;
+        return null;
+    }
+
+    /**
+     * Returns the tolerances of the levels of detail the roadtype is drawn at,
+     * as given to EdgeStore.simplify.
+     */
+    private static double[] tolerances(CommonRoadType rt)
+    {
+        double[] tolerances = new double[rt.getDetailLevels() - 1];
+        for (int i = 0; i < tolerances.length; i++) {
+            tolerances[i] = CommonRoadType.getDetailTolerance(i + 1);
+        }
+        return tolerances;
     }
 
     public static Info loadInfo(String dir)
@@ -189,6 +258,78 @@ public class Loader
 
     }
 
+    /**
+     * Maps the whole file into memory.
+     *
+     * The records are read straight from the mapped buffer, so the file is
+     * never copied through an intermediate stream buffer. The mapping stays
+     * valid after the channel is closed.
+     *
+     * @param f The file to map.
+     * @return A read-only buffer positioned at the start of the file.
+     * @throws IOException If the file could not be opened or mapped.
+     */
+    private static MappedByteBuffer map(File f) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Reads the number of nodes followed by the node ids into nodeBuffer.
+     *
+     * @param buffer The buffer positioned at the number of nodes.
+     * @return The number of node ids read.
+     */
+    private int readNodes(MappedByteBuffer buffer)
+    {
+        int count = buffer.getInt();
+        if (nodeBuffer.length < count) {
+            nodeBuffer = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            nodeBuffer[i] = buffer.getInt();
+        }
+        return count;
+    }
+
+    /**
+     * Reads a string written by DataOutput.writeUTF from the buffer.
+     *
+     * The characters are decoded into a buffer that is reused between calls,
+     * so only the resulting String is allocated.
+     *
+     * @param buffer The buffer positioned at the length of the string.
+     * @return The decoded string.
+     * @throws UTFDataFormatException If the bytes are not valid modified UTF-8.
+     */
+    private String readUTF(MappedByteBuffer buffer) throws UTFDataFormatException
+    {
+        int length = buffer.getShort() & 0xFFFF;
+        if (utfBuffer.length < length) {
+            utfBuffer = new char[length];
+        }
+        int end = buffer.position() + length;
+        int count = 0;
+        while (buffer.position() < end) {
+            int a = buffer.get() & 0xFF;
+            if (a < 0x80) {
+                utfBuffer[count++] = (char) a;
+            } else if ((a & 0xE0) == 0xC0) {
+                int b = buffer.get() & 0xFF;
+                utfBuffer[count++] = (char) (((a & 0x1F) << 6) | (b & 0x3F));
+            } else if ((a & 0xF0) == 0xE0) {
+                int b = buffer.get() & 0xFF;
+                int c = buffer.get() & 0xFF;
+                utfBuffer[count++] = (char) (((a & 0x0F) << 12) | ((b & 0x3F) << 6) | (c & 0x3F));
+            } else {
+                throw new UTFDataFormatException("malformed input around byte " + buffer.position());
+            }
+        }
+        return new String(utfBuffer, 0, count);
+    }
+
     private String intern(String s)
     {
         if (!interner.containsKey(s)) {
@@ -0,0 +1,350 @@
+package dk.itu.groupe.pathfinding;
+
+import dk.itu.groupe.data.Edge;
+import dk.itu.groupe.util.IndexedDoubleMinPQ;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Finds fastest or shortest routes using a Contraction Hierarchy of the
+ * Graph.
+ *
+ * The nodes of the Graph are ranked by the ContractionHierarchyBuilder, and a
+ * shortcut is added wherever removing a node would make a route longer. A
+ * route can then be found by searching from both ends, where each search only
+ * follows roads and shortcuts to nodes of a higher rank. The two searches meet
+ * at the highest node of the route, and each only looks at a small part of
+ * the nodes, even for routes across the country.
+ *
+ * Only the ranks and the shortcuts are saved to the file. The roads are taken
+ * from the Graph when the hierarchy is read, so the file only fits the Graph
+ * it was built from. A shortcut remembers the node it goes around, and is
+ * turned back into the roads it stands for when the route is returned.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class ContractionHierarchy
+{
+
+    private final int numberOfNodes;
+    private final boolean driveTime;
+    // Roads and shortcuts going up to a node of a higher rank, stored at the
+    // node they go from, which is their tail, with the node they go to as
+    // head.
+    private final int[] upFirst, upTail, upHead, upMiddle;
+    private final double[] upWeight;
+    private final Edge[] upEdge;
+    // Roads and shortcuts coming down from a node of a higher rank, stored at
+    // the node they go to, which is their tail, with the node they come from
+    // as head.
+    private final int[] downFirst, downTail, downHead, downMiddle;
+    private final double[] downWeight;
+    private final Edge[] downEdge;
+
+    /**
+     * Creates the hierarchy from the roads of the Graph and the shortcuts.
+     *
+     * @param g The Graph.
+     * @param driveTime Whether the hierarchy is for the fastest or the
+     * shortest routes.
+     * @param rank The rank of every node.
+     * @param shortcuts The number of shortcuts.
+     * @param from The node each shortcut goes from.
+     * @param to The node each shortcut goes to.
+     * @param middle The node each shortcut goes around.
+     * @param weight The weight of each shortcut.
+     */
+    ContractionHierarchy(Graph g, boolean driveTime, int[] rank,
+            int shortcuts, int[] from, int[] to, int[] middle, double[] weight)
+    {
+        this.driveTime = driveTime;
+        g.freeze();
+        numberOfNodes = g.V();
+        // Counts the arcs of every node, and turns the counts into offsets.
+        upFirst = new int[numberOfNodes + 1];
+        downFirst = new int[numberOfNodes + 1];
+        for (int arc = 0; arc < g.E(); arc++) {
+            int v = g.tail(arc), w = g.head(arc);
+            if (v != w) {
+                if (rank[v] < rank[w]) {
+                    upFirst[v + 1]++;
+                } else {
+                    downFirst[w + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < shortcuts; i++) {
+            if (rank[from[i]] < rank[to[i]]) {
+                upFirst[from[i] + 1]++;
+            } else {
+                downFirst[to[i] + 1]++;
+            }
+        }
+        for (int v = 0; v < numberOfNodes; v++) {
+            upFirst[v + 1] += upFirst[v];
+            downFirst[v + 1] += downFirst[v];
+        }
+        int ups = upFirst[numberOfNodes], downs = downFirst[numberOfNodes];
+        upTail = new int[ups];
+        upHead = new int[ups];
+        upMiddle = new int[ups];
+        upWeight = new double[ups];
+        upEdge = new Edge[ups];
+        downTail = new int[downs];
+        downHead = new int[downs];
+        downMiddle = new int[downs];
+        downWeight = new double[downs];
+        downEdge = new Edge[downs];
+
+        // Where the next arc of every node goes.
+        int[] upNext = Arrays.copyOf(upFirst, numberOfNodes);
+        int[] downNext = Arrays.copyOf(downFirst, numberOfNodes);
+        for (int road = 0; road < g.E(); road++) {
+            int v = g.tail(road), w = g.head(road);
+            if (v == w) {
+                continue;
+            }
+            if (rank[v] < rank[w]) {
+                int arc = upNext[v]++;
+                upTail[arc] = v;
+                upHead[arc] = w;
+                upMiddle[arc] = -1;
+                upWeight[arc] = g.weight(road, driveTime);
+                upEdge[arc] = g.edge(road);
+            } else {
+                int arc = downNext[w]++;
+                downTail[arc] = w;
+                downHead[arc] = v;
+                downMiddle[arc] = -1;
+                downWeight[arc] = g.weight(road, driveTime);
+                downEdge[arc] = g.edge(road);
+            }
+        }
+        for (int i = 0; i < shortcuts; i++) {
+            if (rank[from[i]] < rank[to[i]]) {
+                int arc = upNext[from[i]]++;
+                upTail[arc] = from[i];
+                upHead[arc] = to[i];
+                upMiddle[arc] = middle[i];
+                upWeight[arc] = weight[i];
+            } else {
+                int arc = downNext[to[i]]++;
+                downTail[arc] = to[i];
+                downHead[arc] = from[i];
+                downMiddle[arc] = middle[i];
+                downWeight[arc] = weight[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the file the hierarchy of the routes of the given
+     * kind is saved in, within the directory of the data.
+     *
+     * @param driveTime Whether the hierarchy is for the fastest or the
+     * shortest routes.
+     * @return The name of the file.
+     */
+    public static String fileName(boolean driveTime)
+    {
+        return driveTime ? "ch-time.bin" : "ch-length.bin";
+    }
+
+    /**
+     * Reads the hierarchy written by the ContractionHierarchyBuilder.
+     *
+     * @param fileName The file to read.
+     * @param g The Graph the hierarchy was built from.
+     * @return The hierarchy, or null if there is no file, or if it was built
+     * from another Graph.
+     * @throws IOException If the file could not be read.
+     */
+    public static ContractionHierarchy read(String fileName, Graph g) throws IOException
+    {
+        File f = new File(fileName);
+        if (!f.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            int nodes = in.readInt(), edges = in.readInt();
+            boolean driveTime = in.readBoolean();
+            if (nodes != g.V() || edges != g.E()) {
+                return null;
+            }
+            int[] rank = new int[nodes];
+            for (int v = 0; v < nodes; v++) {
+                rank[v] = in.readInt();
+            }
+            int shortcuts = in.readInt();
+            int[] from = new int[shortcuts], to = new int[shortcuts], middle = new int[shortcuts];
+            double[] weight = new double[shortcuts];
+            for (int i = 0; i < shortcuts; i++) {
+                from[i] = in.readInt();
+                to[i] = in.readInt();
+                middle[i] = in.readInt();
+                weight[i] = in.readDouble();
+            }
+            return new ContractionHierarchy(g, driveTime, rank, shortcuts, from, to, middle, weight);
+        }
+    }
+
+    /**
+     * States whether the hierarchy is for the fastest or the shortest routes.
+     *
+     * @return True if it is for the fastest routes, false otherwise.
+     */
+    public boolean pathByDriveTime()
+    {
+        return driveTime;
+    }
+
+    /**
+     * Finds the route between two nodes.
+     *
+     * The search stops with a CancellationException if the thread running it
+     * is interrupted.
+     *
+     * @param from The index of the from-Node.
+     * @param to The index of the destination-Node.
+     * @return The fastest or shortest route.
+     * @throws NoPathFoundException If there is no route between the nodes.
+     */
+    public Route route(int from, int to) throws NoPathFoundException
+    {
+        if (from == to) {
+            return new Route(from, to, driveTime, new Edge[0]);
+        }
+        // The forward search goes up from the start, and the backward search
+        // goes up from the destination along the down arcs. Each node keeps
+        // the arc it was reached by.
+        SearchWorkspace workspace = SearchWorkspace.get(numberOfNodes);
+        IndexedDoubleMinPQ forward = workspace.forward(), backward = workspace.backward();
+        workspace.setTo(from, 0.0, -1);
+        workspace.setBack(to, 0.0, -1);
+        forward.insert(from, 0.0);
+        backward.insert(to, 0.0);
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1, settled = 0;
+        while (true) {
+            if ((++settled & 1023) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The search was interrupted");
+            }
+            double forwardMin = forward.isEmpty() ? Double.POSITIVE_INFINITY : forward.minKey();
+            double backwardMin = backward.isEmpty() ? Double.POSITIVE_INFINITY : backward.minKey();
+            // Neither search can find a better meeting node.
+            if (Math.min(forwardMin, backwardMin) >= best) {
+                break;
+            }
+            if (forwardMin <= backwardMin) {
+                int v = forward.delMin();
+                double distV = workspace.distTo(v);
+                for (int arc = upFirst[v]; arc < upFirst[v + 1]; arc++) {
+                    int w = upHead[arc];
+                    double dist = distV + upWeight[arc];
+                    if (dist < workspace.distTo(w)) {
+                        workspace.setTo(w, dist, arc);
+                        if (forward.contains(w)) {
+                            forward.decreaseKey(w, dist);
+                        } else {
+                            forward.insert(w, dist);
+                        }
+                        if (dist + workspace.distBack(w) < best) {
+                            best = dist + workspace.distBack(w);
+                            meeting = w;
+                        }
+                    }
+                }
+            } else {
+                int v = backward.delMin();
+                double distV = workspace.distBack(v);
+                for (int arc = downFirst[v]; arc < downFirst[v + 1]; arc++) {
+                    int w = downHead[arc];
+                    double dist = distV + downWeight[arc];
+                    if (dist < workspace.distBack(w)) {
+                        workspace.setBack(w, dist, arc);
+                        if (backward.contains(w)) {
+                            backward.decreaseKey(w, dist);
+                        } else {
+                            backward.insert(w, dist);
+                        }
+                        if (dist + workspace.distTo(w) < best) {
+                            best = dist + workspace.distTo(w);
+                            meeting = w;
+                        }
+                    }
+                }
+            }
+        }
+        if (meeting < 0) {
+            throw new NoPathFoundException("No path was found");
+        }
+
+        List<Edge> path = new ArrayList<>();
+        // From the meeting node back to the start, which is turned around.
+        for (int v = meeting; v != from; v = upTail[workspace.edgeTo(v)]) {
+            int arc = workspace.edgeTo(v);
+            List<Edge> part = new ArrayList<>();
+            unpack(true, arc, upTail[arc], v, part);
+            Collections.reverse(part);
+            path.addAll(part);
+        }
+        Collections.reverse(path);
+        // From the meeting node on to the destination.
+        for (int v = meeting; v != to; v = downTail[workspace.edgeBack(v)]) {
+            int arc = workspace.edgeBack(v);
+            unpack(false, arc, v, downTail[arc], path);
+        }
+        return new Route(from, to, driveTime, path.toArray(new Edge[path.size()]));
+    }
+
+    /**
+     * Adds the roads of an arc to the path, in the order they are driven.
+     *
+     * A shortcut from <code>u</code> to <code>w</code> around
+     * <code>v</code> stands for the arc from <code>u</code> down to
+     * <code>v</code>, and the arc from <code>v</code> up to <code>w</code>,
+     * which may be shortcuts themselves. Both are stored at <code>v</code>,
+     * which was contracted before <code>u</code> and <code>w</code>.
+     *
+     * @param up Whether the arc is an up or a down arc.
+     * @param arc The index of the arc.
+     * @param from The node the arc goes from.
+     * @param to The node the arc goes to.
+     * @param path The list to add the roads to.
+     */
+    private void unpack(boolean up, int arc, int from, int to, List<Edge> path)
+    {
+        int middle = up ? upMiddle[arc] : downMiddle[arc];
+        if (middle < 0) {
+            path.add(up ? upEdge[arc] : downEdge[arc]);
+            return;
+        }
+        unpack(false, cheapest(downFirst, downHead, downWeight, middle, from), from, middle, path);
+        unpack(true, cheapest(upFirst, upHead, upWeight, middle, to), middle, to, path);
+    }
+
+    /**
+     * Returns the cheapest arc stored at the node with the given head. The
+     * shortcut was made from the cheapest arcs, as the builder only keeps the
+     * cheapest arc between two nodes.
+     */
+    private static int cheapest(int[] first, int[] head, double[] weight, int node, int other)
+    {
+        int best = -1;
+        for (int arc = first[node]; arc < first[node + 1]; arc++) {
+            if (head[arc] == other && (best < 0 || weight[arc] < weight[best])) {
+                best = arc;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,432 @@
+package dk.itu.groupe.pathfinding;
+
+import dk.itu.groupe.util.IndexedDoubleMinPQ;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Builds a ContractionHierarchy of a Graph.
+ *
+ * The nodes are removed from the Graph one at a time, starting with the least
+ * important ones. When a node is removed, a shortcut is added between each
+ * pair of its neighbours, unless a small search finds a route between them
+ * that is as short without the node. The importance of a node is the number
+ * of shortcuts it would add less the number of roads it would remove, plus
+ * the number of its neighbours that have already been removed, so the nodes
+ * are removed evenly across the map. The order the nodes are removed in is
+ * their rank.
+ *
+ * It takes a while, so it should be done once for the data, by running the
+ * main method, and not every time the map is loaded.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class ContractionHierarchyBuilder
+{
+
+    // The most nodes a search for a route around a node may settle. A search
+    // that gives up adds the shortcut, which is never wrong, but may not be
+    // needed.
+    private static final int SETTLE_LIMIT = 500;
+
+    private final Graph g;
+    private final boolean driveTime;
+    private final int numberOfNodes;
+    // The roads and shortcuts between the nodes that are left, at most one
+    // in each direction between two nodes.
+    private final int[][] outHead, inHead;
+    private final double[][] outWeight, inWeight;
+    private final int[] outSize, inSize;
+    private final int[] deletedNeighbours;
+    private final int[] rank;
+    private int shortcuts;
+    private int[] shortcutFrom, shortcutTo, shortcutMiddle;
+    private double[] shortcutWeight;
+    // The witness search. The distances are only valid for the nodes that are
+    // stamped with the current search.
+    private final double[] witnessDist;
+    private final int[] witnessStamp;
+    private int stamp;
+    private int[] heapNode;
+    private double[] heapKey;
+    private int heapSize;
+    private ContractionHierarchy hierarchy;
+
+    /**
+     * Creates a new ContractionHierarchyBuilder.
+     *
+     * @param g The Graph to build the hierarchy of.
+     * @param driveTime Whether to build the hierarchy for the fastest or the
+     * shortest routes.
+     */
+    public ContractionHierarchyBuilder(Graph g, boolean driveTime)
+    {
+        this.g = g;
+        this.driveTime = driveTime;
+        numberOfNodes = g.V();
+        outHead = new int[numberOfNodes][];
+        inHead = new int[numberOfNodes][];
+        outWeight = new double[numberOfNodes][];
+        inWeight = new double[numberOfNodes][];
+        outSize = new int[numberOfNodes];
+        inSize = new int[numberOfNodes];
+        deletedNeighbours = new int[numberOfNodes];
+        rank = new int[numberOfNodes];
+        shortcutFrom = new int[16];
+        shortcutTo = new int[16];
+        shortcutMiddle = new int[16];
+        shortcutWeight = new double[16];
+        witnessDist = new double[numberOfNodes];
+        witnessStamp = new int[numberOfNodes];
+        heapNode = new int[16];
+        heapKey = new double[16];
+    }
+
+    /**
+     * Ranks the nodes and finds the shortcuts.
+     *
+     * @return The hierarchy.
+     */
+    public ContractionHierarchy build()
+    {
+        for (int v = 0; v < numberOfNodes; v++) {
+            outHead[v] = new int[4];
+            inHead[v] = new int[4];
+            outWeight[v] = new double[4];
+            inWeight[v] = new double[4];
+        }
+        g.freeze();
+        for (int arc = 0; arc < g.E(); arc++) {
+            if (g.tail(arc) != g.head(arc)) {
+                connect(g.tail(arc), g.head(arc), g.weight(arc, driveTime));
+            }
+        }
+
+        IndexedDoubleMinPQ order = new IndexedDoubleMinPQ(numberOfNodes);
+        for (int v = 0; v < numberOfNodes; v++) {
+            order.insert(v, priority(v));
+        }
+        int next = 0;
+        while (!order.isEmpty()) {
+            int v = order.delMin();
+            // The priority may have gone up since it was put in the queue.
+            double p = priority(v);
+            if (!order.isEmpty() && p > order.minKey()) {
+                order.insert(v, p);
+                continue;
+            }
+            contract(v);
+            rank[v] = next++;
+            for (int i = 0; i < outSize[v]; i++) {
+                update(order, outHead[v][i]);
+            }
+            for (int i = 0; i < inSize[v]; i++) {
+                update(order, inHead[v][i]);
+            }
+        }
+        hierarchy = new ContractionHierarchy(g, driveTime, rank, shortcuts,
+                shortcutFrom, shortcutTo, shortcutMiddle, shortcutWeight);
+        return hierarchy;
+    }
+
+    /**
+     * Returns the hierarchy made by <code>build</code>.
+     *
+     * @return The hierarchy, or null if it has not been built.
+     */
+    public ContractionHierarchy getHierarchy()
+    {
+        return hierarchy;
+    }
+
+    /**
+     * Returns the number of shortcuts that were added.
+     *
+     * @return The number of shortcuts.
+     */
+    public int getShortcuts()
+    {
+        return shortcuts;
+    }
+
+    /**
+     * Writes the ranks and the shortcuts to a file, which is read by
+     * <code>ContractionHierarchy.read</code>.
+     *
+     * @param fileName The file to write.
+     * @throws IOException If the file could not be written.
+     */
+    public void write(String fileName) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeInt(numberOfNodes);
+            out.writeInt(g.E());
+            out.writeBoolean(driveTime);
+            for (int v = 0; v < numberOfNodes; v++) {
+                out.writeInt(rank[v]);
+            }
+            out.writeInt(shortcuts);
+            for (int i = 0; i < shortcuts; i++) {
+                out.writeInt(shortcutFrom[i]);
+                out.writeInt(shortcutTo[i]);
+                out.writeInt(shortcutMiddle[i]);
+                out.writeDouble(shortcutWeight[i]);
+            }
+        }
+    }
+
+    private void update(IndexedDoubleMinPQ order, int v)
+    {
+        deletedNeighbours[v]++;
+        if (order.contains(v)) {
+            // A priority that has gone up is found when the node is taken
+            // from the queue.
+            order.decreaseKey(v, priority(v));
+        }
+    }
+
+    /**
+     * Returns how important the node is. The less important nodes are
+     * contracted first.
+     */
+    private double priority(int v)
+    {
+        int added = 0;
+        for (int i = 0; i < inSize[v]; i++) {
+            int u = inHead[v][i];
+            double limit = maxVia(v, u);
+            witnessSearch(u, v, limit);
+            for (int j = 0; j < outSize[v]; j++) {
+                int w = outHead[v][j];
+                if (w != u && !witnessed(w, inWeight[v][i] + outWeight[v][j])) {
+                    added++;
+                }
+            }
+        }
+        return added - inSize[v] - outSize[v] + deletedNeighbours[v];
+    }
+
+    /**
+     * Removes the node, and adds the shortcuts that are needed around it.
+     */
+    private void contract(int v)
+    {
+        for (int i = 0; i < inSize[v]; i++) {
+            int u = inHead[v][i];
+            double limit = maxVia(v, u);
+            witnessSearch(u, v, limit);
+            for (int j = 0; j < outSize[v]; j++) {
+                int w = outHead[v][j];
+                double via = inWeight[v][i] + outWeight[v][j];
+                if (w != u && !witnessed(w, via) && connect(u, w, via)) {
+                    addShortcut(u, w, v, via);
+                }
+            }
+        }
+        for (int i = 0; i < inSize[v]; i++) {
+            remove(inHead[v][i], v, outHead, outWeight, outSize);
+        }
+        for (int i = 0; i < outSize[v]; i++) {
+            remove(outHead[v][i], v, inHead, inWeight, inSize);
+        }
+    }
+
+    /**
+     * Returns the longest route from u through v to one of the nodes after
+     * v, which is as far as the witness search has to look.
+     */
+    private double maxVia(int v, int u)
+    {
+        double in = 0;
+        for (int i = 0; i < inSize[v]; i++) {
+            if (inHead[v][i] == u) {
+                in = inWeight[v][i];
+            }
+        }
+        double max = 0;
+        for (int j = 0; j < outSize[v]; j++) {
+            max = Math.max(max, outWeight[v][j]);
+        }
+        return in + max;
+    }
+
+    /**
+     * States whether the last witness search found a route to w that is no
+     * longer than the route through the contracted node.
+     */
+    private boolean witnessed(int w, double via)
+    {
+        return witnessStamp[w] == stamp && witnessDist[w] <= via;
+    }
+
+    /**
+     * Searches from u for routes that do not pass through the node being
+     * contracted. The search stops at the limit, or when it has settled
+     * SETTLE_LIMIT nodes.
+     */
+    private void witnessSearch(int u, int ignore, double limit)
+    {
+        stamp++;
+        heapSize = 0;
+        witnessStamp[u] = stamp;
+        witnessDist[u] = 0;
+        push(u, 0);
+        int settled = 0;
+        while (heapSize > 0 && settled < SETTLE_LIMIT) {
+            double d = heapKey[0];
+            int x = pop();
+            if (d > witnessDist[x]) {
+                // An older entry of a node that was since reached sooner.
+                continue;
+            }
+            if (d > limit) {
+                break;
+            }
+            settled++;
+            for (int i = 0; i < outSize[x]; i++) {
+                int y = outHead[x][i];
+                if (y == ignore) {
+                    continue;
+                }
+                double dist = d + outWeight[x][i];
+                if (witnessStamp[y] != stamp || dist < witnessDist[y]) {
+                    witnessStamp[y] = stamp;
+                    witnessDist[y] = dist;
+                    push(y, dist);
+                }
+            }
+        }
+    }
+
+    private void push(int node, double key)
+    {
+        if (heapSize == heapNode.length) {
+            heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+            heapKey = Arrays.copyOf(heapKey, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0 && heapKey[(i - 1) / 2] > key) {
+            heapNode[i] = heapNode[(i - 1) / 2];
+            heapKey[i] = heapKey[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heapNode[i] = node;
+        heapKey[i] = key;
+    }
+
+    private int pop()
+    {
+        int top = heapNode[0];
+        int node = heapNode[--heapSize];
+        double key = heapKey[heapSize];
+        int i = 0;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapKey[child + 1] < heapKey[child]) {
+                child++;
+            }
+            if (heapKey[child] >= key) {
+                break;
+            }
+            heapNode[i] = heapNode[child];
+            heapKey[i] = heapKey[child];
+            i = child;
+        }
+        heapNode[i] = node;
+        heapKey[i] = key;
+        return top;
+    }
+
+    /**
+     * Adds the arc from u to w, or makes the one that is there cheaper.
+     *
+     * @return True if the arc was added or made cheaper.
+     */
+    private boolean connect(int u, int w, double weight)
+    {
+        for (int i = 0; i < outSize[u]; i++) {
+            if (outHead[u][i] == w) {
+                if (outWeight[u][i] <= weight) {
+                    return false;
+                }
+                outWeight[u][i] = weight;
+                for (int j = 0; j < inSize[w]; j++) {
+                    if (inHead[w][j] == u) {
+                        inWeight[w][j] = weight;
+                    }
+                }
+                return true;
+            }
+        }
+        append(u, w, weight, outHead, outWeight, outSize);
+        append(w, u, weight, inHead, inWeight, inSize);
+        return true;
+    }
+
+    private static void append(int v, int head, double weight, int[][] heads, double[][] weights, int[] size)
+    {
+        if (size[v] == heads[v].length) {
+            heads[v] = Arrays.copyOf(heads[v], size[v] * 2);
+            weights[v] = Arrays.copyOf(weights[v], size[v] * 2);
+        }
+        heads[v][size[v]] = head;
+        weights[v][size[v]] = weight;
+        size[v]++;
+    }
+
+    private static void remove(int v, int head, int[][] heads, double[][] weights, int[] size)
+    {
+        for (int i = 0; i < size[v]; i++) {
+            if (heads[v][i] == head) {
+                size[v]--;
+                heads[v][i] = heads[v][size[v]];
+                weights[v][i] = weights[v][size[v]];
+                return;
+            }
+        }
+    }
+
+    private void addShortcut(int from, int to, int middle, double weight)
+    {
+        if (shortcuts == shortcutFrom.length) {
+            shortcutFrom = Arrays.copyOf(shortcutFrom, shortcuts * 2);
+            shortcutTo = Arrays.copyOf(shortcutTo, shortcuts * 2);
+            shortcutMiddle = Arrays.copyOf(shortcutMiddle, shortcuts * 2);
+            shortcutWeight = Arrays.copyOf(shortcutWeight, shortcuts * 2);
+        }
+        shortcutFrom[shortcuts] = from;
+        shortcutTo[shortcuts] = to;
+        shortcutMiddle[shortcuts] = middle;
+        shortcutWeight[shortcuts] = weight;
+        shortcuts++;
+    }
+
+    /**
+     * Builds the hierarchies for the fastest and the shortest routes of the
+     * data in the given directory, and saves them next to the data.
+     *
+     * @param args The directory of the data. Defaults to the Krak data.
+     * @throws IOException If a hierarchy could not be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String dir = args.length > 0 ? args[0] : "./res/data/krak/";
+        if (!dir.endsWith("/")) {
+            dir += "/";
+        }
+        Graph g = Graph.load(dir);
+        for (boolean driveTime : new boolean[]{true, false}) {
+            long start = System.currentTimeMillis();
+            ContractionHierarchyBuilder builder = new ContractionHierarchyBuilder(g, driveTime);
+            builder.build();
+            builder.write(dir + ContractionHierarchy.fileName(driveTime));
+            System.out.println(ContractionHierarchy.fileName(driveTime) + ": "
+                    + builder.getShortcuts() + " shortcuts in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package dk.itu.groupe.pathfinding;
 
+import dk.itu.groupe.data.CommonRoadType;
 import dk.itu.groupe.data.Edge;
+import dk.itu.groupe.data.NodeStore;
+import dk.itu.groupe.data.OneWay;
+import dk.itu.groupe.loading.Loader;
 import dk.itu.groupe.util.LinkedList;
+import java.util.Arrays;
 
 /**
  * This class represents an EdgeWeighted Digraph.
  *
+ * The edges are added while the data is loaded, and the Graph is then frozen
+ * into arrays, before it is searched. Every direction an edge can be driven
+ * in is an arc, and the arcs out of each Node lie next to each other in the
+ * arrays, from <code>firstArc(v)</code> up to <code>firstArc(v + 1)</code>.
+ * A search then reads through a few arrays of numbers, rather than following
+ * a linked list of objects for every Node. The arcs into each Node are listed
+ * the same way, for searching backwards.
+ *
  * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
  * Mikael Jepsen (mlin@itu.dk) with great inspiration from Algorithms 4th
  * Edition, Wayne &amp; Sedgewick.
@@ -15,14 +28,21 @@ public class Graph
 
     private final int numberOfNodes;
     private int numberOfEdges;
-    private LinkedList<WeightedEdge>[] adjacencyLists;
+    // The edges that have been added, until the Graph is frozen.
+    private Edge[] added;
+    private int addedCount;
+    // The frozen Graph. The arcs are ordered by the Node they go from.
+    private Edge[] edges;
+    private int[] firstArc, arcHead, arcTail, arcEdgeId;
+    private float[] arcDriveTime, arcLength;
+    // The arcs ordered by the Node they go to.
+    private int[] firstInArc, inArc;
 
     /**
      * Creates a new Graph with <code>nodes</code> Nodes.
      *
      * @param numberOfNodes The number of nodes in the Graph.
      */
-    @SuppressWarnings("unchecked")
     public Graph(int numberOfNodes)
     {
         if (numberOfNodes < 0) {
@@ -30,7 +50,44 @@ public class Graph
         }
         this.numberOfNodes = numberOfNodes;
         this.numberOfEdges = 0;
-        adjacencyLists = (LinkedList<WeightedEdge>[]) new LinkedList[numberOfNodes];
+        added = new Edge[64];
+    }
+
+    /**
+     * States whether roads of the roadtype can be part of a route.
+     *
+     * @param rt The roadtype.
+     * @return True if the edges of the roadtype should be added to the Graph.
+     */
+    public static boolean includes(CommonRoadType rt)
+    {
+        return rt != CommonRoadType.PEDESTRIAN;
+    }
+
+    /**
+     * Loads the roads of the data in the given directory into a new Graph.
+     *
+     * Used by the tools that prepare the data for finding routes, which need
+     * the same Graph as the map.
+     *
+     * @param dir The directory of the data.
+     * @return The frozen Graph.
+     */
+    static Graph load(String dir)
+    {
+        Loader.Info info = Loader.loadInfo(dir);
+        Loader loader = new Loader();
+        NodeStore nodes = loader.loadNodes(dir + "nodes.bin", info.maxNodes);
+        Graph g = new Graph(info.maxNodes);
+        for (CommonRoadType rt : CommonRoadType.values()) {
+            if (includes(rt)) {
+                for (Edge e : loader.loadEdges(rt, dir, nodes)) {
+                    g.addEdge(e);
+                }
+            }
+        }
+        g.freeze();
+        return g;
     }
 
     /**
@@ -44,7 +101,8 @@ public class Graph
     }
 
     /**
-     * Returns the number of Edges in the graph.
+     * Returns the number of Edges in the graph. An edge that can be driven
+     * both ways counts twice.
      *
      * @return The number of Edges in the graph.
      */
@@ -56,85 +114,188 @@ public class Graph
     /**
      * Adds an Edge to the Graph.
      *
+     * Edges may be added from several threads at once.
+     *
      * @param e The edge to add.
      * @throws ArrayIndexOutOfBoundsException If the Edge contains Node-ids that
      * is greater than the graphs number of Ids.
+     * @throws IllegalStateException If the Graph has been frozen.
      */
-    public void addEdge(Edge e)
-    {
-        switch (e.getOneWay()) {
-            case NO:
-                addE(new WeightedEdge(e, e.from().id(), e.to().id()));
-                addE(new WeightedEdge(e, e.to().id(), e.from().id()));
-                break;
-            case FROM_TO:
-                addE(new WeightedEdge(e, e.from().id(), e.to().id()));
-                break;
-            case TO_FROM:
-                addE(new WeightedEdge(e, e.to().id(), e.from().id()));
-                break;
+    public synchronized void addEdge(Edge e)
+    {
+        if (edges != null) {
+            throw new IllegalStateException("Edges can't be added to a frozen Graph");
+        }
+        if (e.from() < 0 || e.from() >= numberOfNodes || e.to() < 0 || e.to() >= numberOfNodes) {
+            throw new ArrayIndexOutOfBoundsException("vertex is not between 0 and " + (numberOfNodes - 1));
+        }
+        if (addedCount == added.length) {
+            added = Arrays.copyOf(added, addedCount * 2);
         }
+        added[addedCount++] = e;
+        numberOfEdges += e.getOneWay() == OneWay.NO ? 2 : 1;
     }
 
-    private void addE(WeightedEdge e)
+    /**
+     * Freezes the Graph into the arrays that are searched. This is done once,
+     * when every edge has been added, and does nothing after that.
+     *
+     * The searches freeze the Graph before they start, so it need not be done
+     * by hand, but doing it when the data has been loaded keeps it from
+     * slowing down the first search.
+     */
+    public synchronized void freeze()
     {
-        if (adjacencyLists[e.from] == null) {
-            adjacencyLists[e.from] = new LinkedList<>();
+        if (edges != null) {
+            return;
+        }
+        edges = Arrays.copyOf(added, addedCount);
+        added = null;
+        firstArc = new int[numberOfNodes + 1];
+        firstInArc = new int[numberOfNodes + 1];
+        arcHead = new int[numberOfEdges];
+        arcTail = new int[numberOfEdges];
+        arcEdgeId = new int[numberOfEdges];
+        arcDriveTime = new float[numberOfEdges];
+        arcLength = new float[numberOfEdges];
+        inArc = new int[numberOfEdges];
+        // Counts the arcs out of and into every Node, and turns the counts
+        // into offsets.
+        for (Edge e : edges) {
+            if (e.getOneWay() != OneWay.TO_FROM) {
+                firstArc[e.from() + 1]++;
+                firstInArc[e.to() + 1]++;
+            }
+            if (e.getOneWay() != OneWay.FROM_TO) {
+                firstArc[e.to() + 1]++;
+                firstInArc[e.from() + 1]++;
+            }
+        }
+        for (int v = 0; v < numberOfNodes; v++) {
+            firstArc[v + 1] += firstArc[v];
+            firstInArc[v + 1] += firstInArc[v];
+        }
+        // Where the next arc out of every Node goes.
+        int[] next = Arrays.copyOf(firstArc, numberOfNodes);
+        for (int id = 0; id < edges.length; id++) {
+            Edge e = edges[id];
+            if (e.getOneWay() != OneWay.TO_FROM) {
+                addArc(next[e.from()]++, id, e.from(), e.to());
+            }
+            if (e.getOneWay() != OneWay.FROM_TO) {
+                addArc(next[e.to()]++, id, e.to(), e.from());
+            }
+        }
+        next = Arrays.copyOf(firstInArc, numberOfNodes);
+        for (int arc = 0; arc < numberOfEdges; arc++) {
+            inArc[next[arcHead[arc]]++] = arc;
         }
-        adjacencyLists[e.from].add(e);
-        numberOfEdges++;
+    }
+
+    private void addArc(int arc, int id, int from, int to)
+    {
+        arcHead[arc] = to;
+        arcTail[arc] = from;
+        arcEdgeId[arc] = id;
+        arcDriveTime[arc] = edges[id].getDriveTime();
+        arcLength[arc] = edges[id].getLength();
     }
 
     /**
-     * Returns a view of all Edges that goes from <code>node</code>
+     * Returns the first arc out of <code>node</code>. The arcs out of the
+     * Node end where the arcs out of the next Node begin.
      *
-     * @param node The id of the Node.
-     * @return A view of all Edges that goes from <code>node</code>.
+     * @param node The id of the Node, or the number of Nodes for the end of
+     * the arcs out of the last Node.
+     * @return The first arc.
      */
-    Iterable<WeightedEdge> adjacent(int node)
+    int firstArc(int node)
     {
-        if (node < 0 || node >= numberOfNodes) {
-            throw new IndexOutOfBoundsException("vertex " + node + " is not between 0 and " + (numberOfNodes - 1));
-        }
-        if (adjacencyLists[node] == null) {
-            adjacencyLists[node] = new LinkedList<>();
-        }
-        return adjacencyLists[node];
+        return firstArc[node];
     }
 
     /**
-     * Returns a view of all Edges in the Graph.
+     * Returns the first index of the arcs into <code>node</code>. The arcs
+     * into the Node end where the arcs into the next Node begin.
      *
-     * @return A view of all Edges in the Graph.
+     * @param node The id of the Node, or the number of Nodes for the end of
+     * the arcs into the last Node.
+     * @return The first index, to be given to <code>inArc</code>.
      */
-    public Iterable<Edge> edges()
+    int firstInArc(int node)
     {
-        LinkedList<Edge> set = new LinkedList<>();
-        for (int v = 0; v < numberOfNodes; v++) {
-            for (WeightedEdge e : adjacent(v)) {
-                set.add(e.e);
-            }
-        }
-        return set;
+        return firstInArc[node];
     }
 
-    class WeightedEdge
+    /**
+     * Returns an arc from the arcs ordered by the Node they go to.
+     *
+     * @param index The index of the arc in that order.
+     * @return The arc.
+     */
+    int inArc(int index)
     {
+        return inArc[index];
+    }
 
-        Edge e;
-        int from;
-        int to;
+    /**
+     * Returns the Node the arc goes to.
+     *
+     * @param arc The arc.
+     * @return The id of the Node.
+     */
+    int head(int arc)
+    {
+        return arcHead[arc];
+    }
 
-        WeightedEdge(Edge e, int from, int to)
-        {
-            this.e = e;
-            this.from = from;
-            this.to = to;
-        }
+    /**
+     * Returns the Node the arc goes from.
+     *
+     * @param arc The arc.
+     * @return The id of the Node.
+     */
+    int tail(int arc)
+    {
+        return arcTail[arc];
+    }
 
-        double getWeight(boolean driveTime)
-        {
-            return driveTime ? e.getDriveTime() : e.getLength();
+    /**
+     * Returns the weight of the arc.
+     *
+     * @param arc The arc.
+     * @param driveTime Whether to return the drive time or the length.
+     * @return The drive time in minutes, or the length in meters.
+     */
+    double weight(int arc, boolean driveTime)
+    {
+        return driveTime ? arcDriveTime[arc] : arcLength[arc];
+    }
+
+    /**
+     * Returns the Edge the arc drives along.
+     *
+     * @param arc The arc.
+     * @return The Edge.
+     */
+    Edge edge(int arc)
+    {
+        return edges[arcEdgeId[arc]];
+    }
+
+    /**
+     * Returns a view of all Edges in the Graph, once for every way they can be
+     * driven.
+     *
+     * @return A view of all Edges in the Graph.
+     */
+    public Iterable<Edge> edges()
+    {
+        freeze();
+        LinkedList<Edge> set = new LinkedList<>();
+        for (int arc = 0; arc < numberOfEdges; arc++) {
+            set.add(edge(arc));
         }
+        return set;
     }
 }
@@ -0,0 +1,270 @@
+package dk.itu.groupe.pathfinding;
+
+import dk.itu.groupe.util.IndexedDoubleMinPQ;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The distances to and from a few landmark nodes, which gives a lower bound
+ * on the distance between any two nodes.
+ *
+ * If the route from a landmark L to t is d(L, t), the route from v to t can
+ * be no shorter than d(L, t) - d(L, v), as the route from L through v to t
+ * would otherwise be shorter than the shortest route from L to t. The same
+ * holds for the routes to the landmark, so the route from v to t can be no
+ * shorter than d(v, L) - d(t, L). The best bound over all the landmarks is a
+ * far better heuristic for ShortestPath than the Euclidean-distance, mostly
+ * for the fastest routes, where the Euclidean-distance has to assume every
+ * road is a motorway.
+ *
+ * The landmarks are chosen far apart, at the edges of the map, where they
+ * give the best bounds. Each is found as the node furthest from the
+ * landmarks chosen so far.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class Landmarks
+{
+
+    /**
+     * The number of landmarks used by the main method.
+     */
+    public static final int LANDMARKS = 16;
+
+    // The distances are saved as floats, which are off by at most this much
+    // of the distance. The bounds are lowered by as much, so they stay below
+    // the real distance.
+    private static final double FLOAT_ERROR = 1e-7;
+
+    private final boolean driveTime;
+    private final int count;
+    private final int[] landmarks;
+    // For every node, the distances from each landmark, followed by the
+    // distances to each landmark. A node that cannot be reached from or
+    // cannot reach a landmark has an infinite distance.
+    private final float[] distances;
+
+    private Landmarks(boolean driveTime, int[] landmarks, float[] distances)
+    {
+        this.driveTime = driveTime;
+        this.count = landmarks.length;
+        this.landmarks = landmarks;
+        this.distances = distances;
+    }
+
+    /**
+     * Returns the name of the file the landmarks for the routes of the given
+     * kind are saved in, within the directory of the data.
+     *
+     * @param driveTime Whether the landmarks are for the fastest or the
+     * shortest routes.
+     * @return The name of the file.
+     */
+    public static String fileName(boolean driveTime)
+    {
+        return driveTime ? "landmarks-time.bin" : "landmarks-length.bin";
+    }
+
+    /**
+     * Chooses the landmarks and finds the distances to and from them.
+     *
+     * @param g The Graph.
+     * @param driveTime Whether to find the landmarks for the fastest or the
+     * shortest routes.
+     * @param count The number of landmarks.
+     * @return The landmarks.
+     */
+    public static Landmarks build(Graph g, boolean driveTime, int count)
+    {
+        g.freeze();
+        int numberOfNodes = g.V();
+
+        // The first landmark is the node furthest from a node with roads.
+        int start = 0;
+        while (start < numberOfNodes - 1 && g.firstArc(start) == g.firstArc(start + 1)) {
+            start++;
+        }
+        double[] nearest = search(g, start, driveTime, true);
+        int[] chosen = new int[count];
+        float[] distances = new float[numberOfNodes * 2 * count];
+        for (int i = 0; i < count; i++) {
+            int landmark = start;
+            for (int v = 0; v < numberOfNodes; v++) {
+                if (nearest[v] < Double.POSITIVE_INFINITY && nearest[v] > nearest[landmark]) {
+                    landmark = v;
+                }
+            }
+            chosen[i] = landmark;
+            double[] from = search(g, landmark, driveTime, true);
+            double[] to = search(g, landmark, driveTime, false);
+            for (int v = 0; v < numberOfNodes; v++) {
+                distances[v * 2 * count + i] = (float) from[v];
+                distances[v * 2 * count + count + i] = (float) to[v];
+                // The next landmark is the node furthest from every landmark.
+                nearest[v] = i == 0 ? from[v] : Math.min(nearest[v], from[v]);
+            }
+        }
+        return new Landmarks(driveTime, chosen, distances);
+    }
+
+    /**
+     * Finds the distances from the source to every node, or from every node
+     * to the source, by searching backwards.
+     */
+    private static double[] search(Graph g, int source, boolean driveTime, boolean forward)
+    {
+        double[] dist = new double[g.V()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[source] = 0.0;
+        IndexedDoubleMinPQ pq = new IndexedDoubleMinPQ(dist.length);
+        pq.insert(source, 0.0);
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            int first = forward ? g.firstArc(v) : g.firstInArc(v);
+            int end = forward ? g.firstArc(v + 1) : g.firstInArc(v + 1);
+            for (int i = first; i < end; i++) {
+                int arc = forward ? i : g.inArc(i);
+                int w = forward ? g.head(arc) : g.tail(arc);
+                if (dist[v] + g.weight(arc, driveTime) < dist[w]) {
+                    dist[w] = dist[v] + g.weight(arc, driveTime);
+                    if (pq.contains(w)) {
+                        pq.decreaseKey(w, dist[w]);
+                    } else {
+                        pq.insert(w, dist[w]);
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Reads the landmarks written by <code>write</code>.
+     *
+     * @param fileName The file to read.
+     * @param g The Graph the landmarks were found in.
+     * @return The landmarks, or null if there is no file, if it was made from
+     * another Graph, or if it is not as long as it should be.
+     * @throws IOException If the file could not be read.
+     */
+    public static Landmarks read(String fileName, Graph g) throws IOException
+    {
+        File f = new File(fileName);
+        if (!f.exists()) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        // The number of nodes, the number of edges, the kind of route and the
+        // number of landmarks.
+        if (buffer.remaining() < 13) {
+            return null;
+        }
+        int nodes = buffer.getInt(), edges = buffer.getInt();
+        boolean driveTime = buffer.get() != 0;
+        int count = buffer.getInt();
+        if (nodes != g.V() || edges != g.E() || count < 0
+                || buffer.remaining() != 4L * count + 4L * nodes * 2 * count) {
+            return null;
+        }
+        int[] landmarks = new int[count];
+        for (int i = 0; i < landmarks.length; i++) {
+            landmarks[i] = buffer.getInt();
+        }
+        float[] distances = new float[nodes * 2 * landmarks.length];
+        buffer.asFloatBuffer().get(distances);
+        return new Landmarks(driveTime, landmarks, distances);
+    }
+
+    /**
+     * Writes the landmarks to a file.
+     *
+     * @param fileName The file to write.
+     * @param g The Graph the landmarks were found in.
+     * @throws IOException If the file could not be written.
+     */
+    public void write(String fileName, Graph g) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeInt(g.V());
+            out.writeInt(g.E());
+            out.writeBoolean(driveTime);
+            out.writeInt(count);
+            for (int landmark : landmarks) {
+                out.writeInt(landmark);
+            }
+            for (float distance : distances) {
+                out.writeFloat(distance);
+            }
+        }
+    }
+
+    /**
+     * States whether the landmarks are for the fastest or the shortest
+     * routes.
+     *
+     * @return True if they are for the fastest routes, false otherwise.
+     */
+    public boolean pathByDriveTime()
+    {
+        return driveTime;
+    }
+
+    /**
+     * Returns a lower bound on the distance from one node to another.
+     *
+     * @param v The index of the from-Node.
+     * @param t The index of the destination-Node.
+     * @return A distance that is no greater than the shortest route.
+     */
+    public double lowerBound(int v, int t)
+    {
+        int atV = v * 2 * count, atT = t * 2 * count;
+        double bound = 0;
+        for (int i = 0; i < count; i++) {
+            // Landmarks that cannot reach or be reached from both nodes say
+            // nothing about the route between them.
+            float fromV = distances[atV + i], fromT = distances[atT + i];
+            if (fromV < Float.POSITIVE_INFINITY && fromT < Float.POSITIVE_INFINITY) {
+                bound = Math.max(bound, fromT - fromV - (fromT + fromV) * FLOAT_ERROR);
+            }
+            float toV = distances[atV + count + i], toT = distances[atT + count + i];
+            if (toV < Float.POSITIVE_INFINITY && toT < Float.POSITIVE_INFINITY) {
+                bound = Math.max(bound, toV - toT - (toV + toT) * FLOAT_ERROR);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Finds the landmarks for the fastest and the shortest routes of the data
+     * in the given directory, and saves them next to the data.
+     *
+     * @param args The directory of the data. Defaults to the Krak data.
+     * @throws IOException If the landmarks could not be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String dir = args.length > 0 ? args[0] : "./res/data/krak/";
+        if (!dir.endsWith("/")) {
+            dir += "/";
+        }
+        Graph g = Graph.load(dir);
+        for (boolean driveTime : new boolean[]{true, false}) {
+            long start = System.currentTimeMillis();
+            build(g, driveTime, LANDMARKS).write(dir + fileName(driveTime), g);
+            System.out.println(fileName(driveTime) + ": " + LANDMARKS + " landmarks in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package dk.itu.groupe.pathfinding;
+
+import dk.itu.groupe.data.Edge;
+import dk.itu.groupe.data.EdgeVisitor;
+import dk.itu.groupe.data.RTree;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A route found between two nodes.
+ *
+ * A Route is never changed after it is made, so it can be handed from the
+ * thread that found it to the threads that show it. Its edges are put in an
+ * R-tree when it is made, so drawing the part of a long route that is in view
+ * does not look at the rest of it.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class Route
+{
+
+    private final int from, to;
+    private final boolean driveTime;
+    private final List<Edge> edges;
+    private final double length, time;
+    private final RTree index;
+
+    /**
+     * Creates a new Route.
+     *
+     * @param from The index of the first node.
+     * @param to The index of the last node.
+     * @param driveTime Whether the route is the fastest or the shortest.
+     * @param edges The edges of the route from the first node to the last.
+     */
+    public Route(int from, int to, boolean driveTime, Edge[] edges)
+    {
+        this.from = from;
+        this.to = to;
+        this.driveTime = driveTime;
+        this.edges = Collections.unmodifiableList(Arrays.asList(edges.clone()));
+        double l = 0, t = 0;
+        for (Edge e : edges) {
+            l += e.getLength();
+            t += e.getDriveTime();
+        }
+        length = l;
+        time = t;
+        // The tree reorders the array it is given.
+        index = edges.length > 0 ? new RTree(edges.clone()) : null;
+    }
+
+    public int getFrom()
+    {
+        return from;
+    }
+
+    public int getTo()
+    {
+        return to;
+    }
+
+    /**
+     * States whether this is the fastest or the shortest route.
+     *
+     * @return True if the route is the fastest, false if it is the shortest.
+     */
+    public boolean isByDriveTime()
+    {
+        return driveTime;
+    }
+
+    /**
+     * Returns the edges of the route in the order they are driven.
+     *
+     * @return An unmodifiable list of the edges.
+     */
+    public List<Edge> getEdges()
+    {
+        return edges;
+    }
+
+    /**
+     * Finds the edges of the route that intersect the rectangle, and hands
+     * each of them to the visitor.
+     *
+     * @param leftX The left x-coordinate.
+     * @param bottomY The bottom y-coordinate.
+     * @param rightX The right x-coordinate.
+     * @param topY The top y-coordinate.
+     * @param visitor The visitor that is given the edges.
+     */
+    public void getEdges(double leftX, double bottomY, double rightX, double topY, EdgeVisitor visitor)
+    {
+        if (index != null) {
+            index.getEdges(leftX, bottomY, rightX, topY, visitor);
+        }
+    }
+
+    /**
+     * Returns the length of the route.
+     *
+     * @return The length in meters.
+     */
+    public double getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Returns the time it takes to drive the route.
+     *
+     * @return The time in minutes.
+     */
+    public double getDriveTime()
+    {
+        return time;
+    }
+}
@@ -0,0 +1,182 @@
+package dk.itu.groupe.pathfinding;
+
+import dk.itu.groupe.data.NodeStore;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Finds routes on a thread of its own, so the user interface is not blocked
+ * while searching.
+ *
+ * Only one route is searched for at a time. Asking for a new route cancels
+ * the search for the last one, as it is no longer wanted.
+ *
+ * Routes are found in the ContractionHierarchy of the kind of route, if it
+ * has been built, and otherwise by searching the Graph from both ends,
+ * helped by the Landmarks if they have been found.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+public class RoutePlanner
+{
+
+    /**
+     * Is told when a search has finished.
+     *
+     * The methods are called on the thread of the planner, and never for a
+     * search that was cancelled. If the search fails, the failure is printed
+     * and the listener is told there is no route.
+     */
+    public interface Listener
+    {
+
+        /**
+         * Called when the route has been found.
+         *
+         * @param route The route.
+         */
+        void routeFound(Route route);
+
+        /**
+         * Called when there is no route between the nodes.
+         *
+         * @param ex The reason.
+         */
+        void routeNotFound(NoPathFoundException ex);
+    }
+
+    private final Graph g;
+    private final NodeStore nodes;
+    private volatile ContractionHierarchy timeHierarchy, lengthHierarchy;
+    private volatile Landmarks timeLandmarks, lengthLandmarks;
+    private final ExecutorService executor;
+    private Future<Route> current;
+
+    /**
+     * Creates a new RoutePlanner.
+     *
+     * @param g The Graph to find routes in.
+     * @param nodes The coordinates of the nodes.
+     */
+    public RoutePlanner(Graph g, NodeStore nodes)
+    {
+        this.g = g;
+        this.nodes = nodes;
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "Route planner");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Sets the hierarchy used to find the kind of routes it was built for.
+     *
+     * @param hierarchy The hierarchy.
+     */
+    public void setHierarchy(ContractionHierarchy hierarchy)
+    {
+        if (hierarchy.pathByDriveTime()) {
+            timeHierarchy = hierarchy;
+        } else {
+            lengthHierarchy = hierarchy;
+        }
+    }
+
+    /**
+     * Sets the landmarks used to find the kind of routes they were found for,
+     * when there is no hierarchy for it.
+     *
+     * @param landmarks The landmarks.
+     */
+    public void setLandmarks(Landmarks landmarks)
+    {
+        if (landmarks.pathByDriveTime()) {
+            timeLandmarks = landmarks;
+        } else {
+            lengthLandmarks = landmarks;
+        }
+    }
+
+    /**
+     * Starts searching for a route, and cancels the search that is running.
+     *
+     * @param from The index of the from-Node.
+     * @param to The index of the destination-Node.
+     * @param driveTime Whether to find the fastest or the shortest route.
+     * @param listener Is told when the route is found.
+     * @return The future result of the search.
+     */
+    public synchronized Future<Route> plan(final int from, final int to, final boolean driveTime, final Listener listener)
+    {
+        cancel();
+        FutureTask<Route> task = new FutureTask<Route>(new Callable<Route>()
+        {
+
+            @Override
+            public Route call() throws NoPathFoundException
+            {
+                ContractionHierarchy hierarchy = driveTime ? timeHierarchy : lengthHierarchy;
+                if (hierarchy != null) {
+                    return hierarchy.route(from, to);
+                }
+                Landmarks landmarks = driveTime ? timeLandmarks : lengthLandmarks;
+                ShortestPath path = new ShortestPath(g, from, to, driveTime, nodes, landmarks, true);
+                if (!path.hasPathTo(to)) {
+                    throw new NoPathFoundException("No path was found");
+                }
+                return path.routeTo(to);
+            }
+        })
+        {
+
+            @Override
+            protected void done()
+            {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    listener.routeFound(get());
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof NoPathFoundException) {
+                        listener.routeNotFound((NoPathFoundException) ex.getCause());
+                    } else {
+                        // Throwing here would never tell the listener, which
+                        // would then wait for the route forever.
+                        ex.getCause().printStackTrace(System.err);
+                        listener.routeNotFound(new NoPathFoundException("The search for a route failed: " + ex.getCause()));
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        current = task;
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Cancels the search that is running, if any.
+     */
+    public synchronized void cancel()
+    {
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package dk.itu.groupe.pathfinding;
+
+import dk.itu.groupe.util.IndexedDoubleMinPQ;
+import java.util.Arrays;
+
+/**
+ * The arrays a search for a route writes its distances in, kept from one
+ * search to the next.
+ *
+ * Each thread has a workspace of its own, which is fetched with
+ * <code>get</code>. Rather than filling the arrays before every search, each
+ * node is stamped with the search that last wrote to it, and the values of a
+ * node that has an older stamp are taken to be unknown. Starting a search
+ * then only takes a new stamp, and clearing the queues, which only hold the
+ * nodes that were left in them. A short route is found without looking at
+ * the rest of the nodes at all.
+ *
+ * A search runs in the forward direction from the from-node, and may run in
+ * the backward direction from the destination as well. Both have a distance
+ * and an arc for every node. What the arc means is up to the search.
+ *
+ * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
+ * Mikael Jepsen (mlin@itu.dk)
+ */
+class SearchWorkspace
+{
+
+    private static final ThreadLocal<SearchWorkspace> WORKSPACES = new ThreadLocal<>();
+
+    private final int numberOfNodes;
+    private final int[] stamp;
+    private int current;
+    private final double[] distTo, distBack;
+    private final int[] edgeTo, edgeBack;
+    private final IndexedDoubleMinPQ forward, backward;
+
+    private SearchWorkspace(int numberOfNodes)
+    {
+        this.numberOfNodes = numberOfNodes;
+        stamp = new int[numberOfNodes];
+        distTo = new double[numberOfNodes];
+        distBack = new double[numberOfNodes];
+        edgeTo = new int[numberOfNodes];
+        edgeBack = new int[numberOfNodes];
+        forward = new IndexedDoubleMinPQ(Math.max(1, numberOfNodes));
+        backward = new IndexedDoubleMinPQ(Math.max(1, numberOfNodes));
+    }
+
+    /**
+     * Returns the workspace of this thread for searching a Graph, and starts
+     * a new search in it. Whatever the last search on this thread wrote is
+     * gone.
+     *
+     * @param numberOfNodes The number of nodes in the Graph.
+     * @return The workspace.
+     */
+    static SearchWorkspace get(int numberOfNodes)
+    {
+        SearchWorkspace workspace = WORKSPACES.get();
+        if (workspace == null || workspace.numberOfNodes != numberOfNodes) {
+            workspace = new SearchWorkspace(numberOfNodes);
+            WORKSPACES.set(workspace);
+        }
+        workspace.begin();
+        return workspace;
+    }
+
+    private void begin()
+    {
+        if (++current == 0) {
+            // The stamps have gone all the way round, so the old ones could
+            // be mistaken for new ones.
+            Arrays.fill(stamp, 0);
+            current = 1;
+        }
+        forward.clear();
+        backward.clear();
+    }
+
+    /**
+     * Gives the node the values it has before the search has reached it, if
+     * this search has not written to it yet.
+     */
+    private void touch(int v)
+    {
+        if (stamp[v] != current) {
+            stamp[v] = current;
+            distTo[v] = Double.POSITIVE_INFINITY;
+            distBack[v] = Double.POSITIVE_INFINITY;
+            edgeTo[v] = -1;
+            edgeBack[v] = -1;
+        }
+    }
+
+    /**
+     * Returns the forward distance of the node.
+     *
+     * @param v The node.
+     * @return The distance, or infinity if the node has not been reached.
+     */
+    double distTo(int v)
+    {
+        return stamp[v] == current ? distTo[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the arc the forward search reached the node by.
+     *
+     * @param v The node.
+     * @return The arc, or -1 if the node has not been reached.
+     */
+    int edgeTo(int v)
+    {
+        return stamp[v] == current ? edgeTo[v] : -1;
+    }
+
+    /**
+     * Sets the forward distance of the node, and the arc it was reached by.
+     *
+     * @param v The node.
+     * @param dist The distance.
+     * @param arc The arc, or -1.
+     */
+    void setTo(int v, double dist, int arc)
+    {
+        touch(v);
+        distTo[v] = dist;
+        edgeTo[v] = arc;
+    }
+
+    /**
+     * Returns the backward distance of the node.
+     *
+     * @param v The node.
+     * @return The distance, or infinity if the node has not been reached.
+     */
+    double distBack(int v)
+    {
+        return stamp[v] == current ? distBack[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the arc the backward search reached the node by.
+     *
+     * @param v The node.
+     * @return The arc, or -1 if the node has not been reached.
+     */
+    int edgeBack(int v)
+    {
+        return stamp[v] == current ? edgeBack[v] : -1;
+    }
+
+    /**
+     * Sets the backward distance of the node, and the arc it was reached by.
+     *
+     * @param v The node.
+     * @param dist The distance.
+     * @param arc The arc, or -1.
+     */
+    void setBack(int v, double dist, int arc)
+    {
+        touch(v);
+        distBack[v] = dist;
+        edgeBack[v] = arc;
+    }
+
+    /**
+     * Returns the queue of the forward search, which is empty when the search
+     * starts.
+     *
+     * @return The queue.
+     */
+    IndexedDoubleMinPQ forward()
+    {
+        return forward;
+    }
+
+    /**
+     * Returns the queue of the backward search, which is empty when the
+     * search starts.
+     *
+     * @return The queue.
+     */
+    IndexedDoubleMinPQ backward()
+    {
+        return backward;
+    }
+}
@@ -1,11 +1,10 @@
 package dk.itu.groupe.pathfinding;
 
 import dk.itu.groupe.data.Edge;
-import dk.itu.groupe.pathfinding.Graph.WeightedEdge;
-import dk.itu.groupe.data.Node;
-import dk.itu.groupe.util.IndexedMinPQ;
+import dk.itu.groupe.data.NodeStore;
+import dk.itu.groupe.util.IndexedDoubleMinPQ;
 import dk.itu.groupe.util.Stack;
-import java.util.Arrays;
+import java.util.concurrent.CancellationException;
 
 /**
  * This class calculates and represents the shortest path from a Node to another
@@ -15,6 +14,27 @@ import java.util.Arrays;
  * it is used for fastest-path search the heuristic returns 0, in other words it
  * is using Dijkstras algorithm until it finds the destination Node.
  *
+ * If it is given Landmarks for the kind of route, the bounds they give are
+ * used as well, which makes the search look at far fewer nodes.
+ *
+ * It can also search from both ends at once, backwards from the destination
+ * along the edges into each Node. Each search only has to reach about half
+ * way, so together they look at fewer nodes for long routes. Both searches
+ * use half the difference of the heuristic towards either end, so they agree
+ * on the order of the nodes, and the search can stop when the two smallest
+ * keys add up to the best route found where they meet.
+ *
+ * The search stops with a CancellationException if the thread running it is
+ * interrupted, so a search that is no longer wanted can be cancelled.
+ *
+ * The distances are written in the SearchWorkspace of the thread, which the
+ * next search on the thread writes over, so only the distance and the path
+ * to the destination-Node are kept when the search is done. The methods that
+ * take a Node only answer for the destination-Node, and throw an
+ * IllegalArgumentException for any other Node. The search stops as soon as
+ * it reaches the destination, so the distances it had to the other Nodes
+ * were not all the shortest ones anyway.
+ *
  * @author Peter Bindslev (plil@itu.dk), Rune Henriksen (ruju@itu.dk) &amp;
  * Mikael Jepsen (mlin@itu.dk)
  */
@@ -22,11 +42,14 @@ import java.util.Arrays;
 public class ShortestPath
 {
     private final Graph g;
-    private final double[] distTo;
-    private final WeightedEdge[] edgeTo;
-    private final IndexedMinPQ<Double> priorityQueue;
-    private static Node[] nodeMap;
+    private final NodeStore nodes;
+    private final Landmarks landmarks;
     private final boolean driveTime;
+    private final int from, to;
+    // The distance and the path to the destination, or null if there is no
+    // path.
+    private double distance;
+    private Edge[] path;
 
     /**
      * The constructor calculates the shortest path from a Node to another in
@@ -44,34 +67,211 @@ public class ShortestPath
      * @param to The index of the destination-Node.
      * @param driveTime States wheter the path is calculated by distance or by
      * driveTime.
-     * @param nodeMap The map of nodes. Used to make coordinate-lookups.
+     * @param nodes The coordinates of the nodes. Used to make
+     * coordinate-lookups.
+     * @throws CancellationException If the thread is interrupted during the
+     * search.
+     */
+    public ShortestPath(Graph g, int from, int to, boolean driveTime, NodeStore nodes)
+    {
+        this(g, from, to, driveTime, nodes, null);
+    }
+
+    /**
+     * Calculates the shortest path from a Node to another in Graph g, using
+     * the landmarks for the heuristic.
+     *
+     * @param g The Graph that contains the Nodes and Edges used to calculate
+     * the shortest/fastest path.
+     * @param from The index of the from-Node.
+     * @param to The index of the destination-Node.
+     * @param driveTime States wheter the path is calculated by distance or by
+     * driveTime.
+     * @param nodes The coordinates of the nodes. Used to make
+     * coordinate-lookups.
+     * @param landmarks The landmarks for the kind of path, or null.
+     * @throws CancellationException If the thread is interrupted during the
+     * search.
+     */
+    public ShortestPath(Graph g, int from, int to, boolean driveTime, NodeStore nodes, Landmarks landmarks)
+    {
+        this(g, from, to, driveTime, nodes, landmarks, false);
+    }
+
+    /**
+     * Calculates the shortest path from a Node to another in Graph g, possibly
+     * searching from both ends at once.
+     *
+     * @param g The Graph that contains the Nodes and Edges used to calculate
+     * the shortest/fastest path.
+     * @param from The index of the from-Node.
+     * @param to The index of the destination-Node.
+     * @param driveTime States wheter the path is calculated by distance or by
+     * driveTime.
+     * @param nodes The coordinates of the nodes. Used to make
+     * coordinate-lookups.
+     * @param landmarks The landmarks for the kind of path, or null.
+     * @param bidirectional Whether to search from both ends.
+     * @throws CancellationException If the thread is interrupted during the
+     * search.
      */
-    public ShortestPath(Graph g, int from, int to, boolean driveTime, Node[] nodeMap)
+    public ShortestPath(Graph g, int from, int to, boolean driveTime, NodeStore nodes, Landmarks landmarks, boolean bidirectional)
     {
+        if (landmarks != null && landmarks.pathByDriveTime() != driveTime) {
+            throw new IllegalArgumentException("The landmarks are for the other kind of path");
+        }
         this.driveTime = driveTime;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
         this.g = g;
-        ShortestPath.nodeMap = nodeMap;
-        distTo = new double[g.V()];
-        edgeTo = new WeightedEdge[g.V()];
-        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
-        distTo[from] = 0.0;
+        this.nodes = nodes;
+        g.freeze();
+        SearchWorkspace workspace = SearchWorkspace.get(g.V());
+        distance = Double.POSITIVE_INFINITY;
+        if (bidirectional) {
+            searchBoth(workspace);
+            return;
+        }
 
         // relax vertices in order of distance from s
-        priorityQueue = new IndexedMinPQ<Double>(g.V());
-        priorityQueue.insert(from, distTo[from]);
+        IndexedDoubleMinPQ priorityQueue = workspace.forward();
+        workspace.setTo(from, 0.0, -1);
+        priorityQueue.insert(from, 0.0);
+        int settled = 0;
         while (!priorityQueue.isEmpty()) {
+            // Looking at the flag is cheap, but not free.
+            if ((++settled & 1023) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The search was interrupted");
+            }
             int v = priorityQueue.delMin();
             // If we have found the shortest path to the destination, we are done.
             if (v == to) {
+                found(workspace, to, workspace.distTo(to));
                 return;
             }
             // Otherwise we continue to relax the edges.
-            for (WeightedEdge e : g.adjacent(v)) {
-                relax(e, to);
+            for (int arc = g.firstArc(v); arc < g.firstArc(v + 1); arc++) {
+                relax(workspace, arc);
+            }
+        }
+    }
+
+    /**
+     * Searches forwards from the from-Node and backwards from the
+     * destination-Node, always going on with the search with the smaller key.
+     */
+    private void searchBoth(SearchWorkspace workspace)
+    {
+        IndexedDoubleMinPQ forward = workspace.forward(), backward = workspace.backward();
+        workspace.setTo(from, 0.0, -1);
+        workspace.setBack(to, 0.0, -1);
+        forward.insert(from, potential(from));
+        backward.insert(to, -potential(to));
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = -1;
+        if (from == to) {
+            best = 0.0;
+            meeting = to;
+        }
+        int settled = 0;
+        while (!forward.isEmpty() && !backward.isEmpty()) {
+            if ((++settled & 1023) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The search was interrupted");
+            }
+            double forwardMin = forward.minKey(), backwardMin = backward.minKey();
+            // No path through the nodes that are left can be shorter.
+            if (forwardMin + backwardMin >= best) {
+                break;
             }
+            if (forwardMin <= backwardMin) {
+                int v = forward.delMin();
+                double distV = workspace.distTo(v);
+                for (int arc = g.firstArc(v); arc < g.firstArc(v + 1); arc++) {
+                    int w = g.head(arc);
+                    double dist = distV + g.weight(arc, driveTime);
+                    if (dist < workspace.distTo(w)) {
+                        workspace.setTo(w, dist, arc);
+                        if (forward.contains(w)) {
+                            forward.decreaseKey(w, dist + potential(w));
+                        } else {
+                            forward.insert(w, dist + potential(w));
+                        }
+                        if (dist + workspace.distBack(w) < best) {
+                            best = dist + workspace.distBack(w);
+                            meeting = w;
+                        }
+                    }
+                }
+            } else {
+                int v = backward.delMin();
+                double distV = workspace.distBack(v);
+                for (int i = g.firstInArc(v); i < g.firstInArc(v + 1); i++) {
+                    int arc = g.inArc(i);
+                    int u = g.tail(arc);
+                    double dist = distV + g.weight(arc, driveTime);
+                    if (dist < workspace.distBack(u)) {
+                        workspace.setBack(u, dist, arc);
+                        if (backward.contains(u)) {
+                            backward.decreaseKey(u, dist - potential(u));
+                        } else {
+                            backward.insert(u, dist - potential(u));
+                        }
+                        if (workspace.distTo(u) + dist < best) {
+                            best = workspace.distTo(u) + dist;
+                            meeting = u;
+                        }
+                    }
+                }
+            }
+        }
+        if (meeting >= 0) {
+            found(workspace, meeting, best);
+        }
+    }
+
+    /**
+     * The part of the heuristic used by the search from both ends. The
+     * forward search adds it to the distance, and the backward search
+     * subtracts it.
+     */
+    private double potential(int v)
+    {
+        return (heuristic(v, to) - heuristic(from, v)) / 2;
+    }
+
+    /**
+     * Keeps the path to the destination-Node, before the workspace is used by
+     * another search. The path is the path the forward search found to the
+     * given Node, followed by the path the backward search found from there,
+     * if it searched.
+     *
+     * @param workspace The workspace of the search.
+     * @param end The Node the forward path ends at.
+     * @param distance The distance to the destination-Node.
+     */
+    private void found(SearchWorkspace workspace, int end, double distance)
+    {
+        this.distance = distance;
+        int n = 0;
+        for (int arc = workspace.edgeTo(end); arc >= 0; arc = workspace.edgeTo(g.tail(arc))) {
+            n++;
+        }
+        int forward = n;
+        for (int arc = workspace.edgeBack(end); arc >= 0; arc = workspace.edgeBack(g.head(arc))) {
+            n++;
+        }
+        path = new Edge[n];
+        int i = forward;
+        for (int arc = workspace.edgeTo(end); arc >= 0; arc = workspace.edgeTo(g.tail(arc))) {
+            path[--i] = g.edge(arc);
+        }
+        i = forward;
+        for (int arc = workspace.edgeBack(end); arc >= 0; arc = workspace.edgeBack(g.head(arc))) {
+            path[i++] = g.edge(arc);
         }
     }
-    
+
     public boolean pathByDriveTime()
     {
         return driveTime;
@@ -83,65 +283,92 @@ public class ShortestPath
      * If a shorter path has been found, it will change the path to this new
      * shortest path to this Node.
      *
-     * @param g The Graph that contains the Nodes and Edges used to calculate
-     * the shortest/fastest path.
-     * @param v The index of the current Node.
-     * @param to The index of the destination-Node.
+     * @param workspace The workspace of the search.
+     * @param arc The arc to relax.
      */
-    private void relax(WeightedEdge e, int t)
+    private void relax(SearchWorkspace workspace, int arc)
     {
-        int v = e.from, w = e.to;
-        if (distTo[w] > distTo[v] + e.getWeight(driveTime)) {
-            distTo[w] = distTo[v] + e.getWeight(driveTime);
-            edgeTo[w] = e;
+        int v = g.tail(arc), w = g.head(arc);
+        double dist = workspace.distTo(v) + g.weight(arc, driveTime);
+        if (workspace.distTo(w) > dist) {
+            workspace.setTo(w, dist, arc);
+            IndexedDoubleMinPQ priorityQueue = workspace.forward();
             if (priorityQueue.contains(w)) {
-                priorityQueue.decreaseKey(w, distTo[w] + heuristic(w, t));
+                priorityQueue.decreaseKey(w, dist + heuristic(w, to));
             } else {
-                priorityQueue.insert(w, distTo[w] + heuristic(w, t));
+                priorityQueue.insert(w, dist + heuristic(w, to));
             }
         }
     }
 
     /**
-     * Returns the distance from the source-Node to this Node.
+     * Returns the distance from the source-Node to the destination-Node.
      *
-     * @param v The index of the Node.
-     * @return The distance from the source-Node to this Node.
+     * @param v The index of the destination-Node.
+     * @return The distance from the source-Node to the destination-Node.
+     * @throws IllegalArgumentException If v is not the destination-Node.
      */
     public double distTo(int v)
     {
-        return distTo[v];
+        checkDestination(v);
+        return distance;
     }
 
     /**
-     * States wheter or not there is a path between the source-Node and this
-     * Node.
+     * States wheter or not there is a path between the source-Node and the
+     * destination-Node.
      *
-     * @param v The id of this Node.
+     * @param v The index of the destination-Node.
      * @return true if there is a path between the source-Node and this node.
      * false otherwise.
+     * @throws IllegalArgumentException If v is not the destination-Node.
      */
     public boolean hasPathTo(int v)
     {
-        return distTo[v] < Double.POSITIVE_INFINITY;
+        checkDestination(v);
+        return path != null;
     }
 
     /**
-     * Returns the path from the source-Node to this node.
+     * Returns the path from the source-Node to the destination-Node.
      *
-     * @param v The id of this Node.
+     * @param v The index of the destination-Node.
      * @return The path from the source-Node to this node.
+     * @throws IllegalArgumentException If v is not the destination-Node.
      */
     public Stack<Edge> pathTo(int v)
     {
         if (!hasPathTo(v)) {
             return null;
         }
-        Stack<Edge> path = new Stack<>();
-        for (WeightedEdge e = edgeTo[v]; e != null; e = edgeTo[e.from]) {
-            path.push(e.e);
+        Stack<Edge> stack = new Stack<>();
+        for (int i = path.length - 1; i >= 0; i--) {
+            stack.push(path[i]);
+        }
+        return stack;
+    }
+
+    /**
+     * Returns the route from the source-Node to the destination-Node.
+     *
+     * @param v The index of the destination-Node.
+     * @return The route from the source-Node to this node, or null if there
+     * is no path.
+     * @throws IllegalArgumentException If v is not the destination-Node.
+     */
+    public Route routeTo(int v)
+    {
+        if (!hasPathTo(v)) {
+            return null;
+        }
+        return new Route(from, v, driveTime, path);
+    }
+
+    private void checkDestination(int v)
+    {
+        if (v != to) {
+            throw new IllegalArgumentException("Only the path to the destination is known");
         }
-        return path;
     }
 
     /**
@@ -149,6 +376,7 @@ public class ShortestPath
      *
      * For shortest path: Euclidean-distance.
      * For fastest path: Euclidean-distance divided by 130 km/h.
+     * With landmarks: The greater of that and the bound of the landmarks.
      *
      * @param s The current Node.
      * @param t The destination Node.
@@ -157,10 +385,16 @@ public class ShortestPath
      */
     private double heuristic(int s, int t)
     {
+        double dx = nodes.x(s) - nodes.x(t), dy = nodes.y(s) - nodes.y(t);
+        double euclidean;
         if (driveTime) {
-            return Math.sqrt(Math.pow(nodeMap[s].x() - nodeMap[t].x(), 2) + Math.pow(nodeMap[s].y() - nodeMap[t].y(), 2)) / 1000 / 130 * 60;
+            euclidean = Math.sqrt(dx * dx + dy * dy) / 1000 / 130 * 60;
         } else {
-            return Math.sqrt(Math.pow(nodeMap[s].x() - nodeMap[t].x(), 2) + Math.pow(nodeMap[s].y() - nodeMap[t].y(), 2));
+            euclidean = Math.sqrt(dx * dx + dy * dy);
+        }
+        if (landmarks != null) {
+            return Math.max(euclidean, landmarks.lowerBound(s, t));
         }
+        return euclidean;
     }
 }
@@ -0,0 +1,224 @@
+package dk.itu.groupe.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An Indexed minimum priority queue where the priorities are doubles.
+ *
+ * The priorities are kept as plain doubles, so nothing is boxed when an index
+ * is inserted or its priority is decreased, and comparing two priorities is a
+ * single comparison.
+ *
+ * The heap is 4-ary, so it is half as deep as a binary heap, and the children
+ * of a place lie next to each other in the arrays. The priorities are kept by
+ * the place in the heap rather than by index, so sinking an index reads the
+ * priorities of the children from one part of the array.
+ *
+ * The queue can be emptied with <code>clear</code> in time proportional to
+ * the number of indexes in it, so it can be reused by search after search.
+ *
+ * @author Mikael
+ */
+public class IndexedDoubleMinPQ
+{
+
+    private final double[] keys; // The priorities, by place in the heap.
+    private final int[] pq;      // Maps from place in the heap to index.
+    private final int[] qp;      // Maps from index to place in the heap.
+    private int size;
+
+    /**
+     * Creates a new empty Indexed minimum priority queue with <code>size</code>
+     * index places.
+     *
+     * The priority queue is 0-indexed, which mean indexes should be between 0
+     * and <code>size</code> - 1.
+     *
+     * @param size The number of index-places.
+     * @throws IllegalArgumentException If size is less than or equal to 0.
+     */
+    public IndexedDoubleMinPQ(int size)
+    {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size can't be less than 0!");
+        }
+        this.size = 0;
+        keys = new double[size];
+        pq = new int[size];
+        qp = new int[size];
+        Arrays.fill(qp, -1);
+    }
+
+    /**
+     * States wheter <code>index</code> is in the priority queue.
+     *
+     * @param index The index to check.
+     * @return True if <code>index</code> is in the priority queue. False
+     * otherwise.
+     * @throws IndexOutOfBoundsException If <code>index</code> is less than 0 or
+     * greater than or equal to the maximum size of the priority queue.
+     */
+    public boolean contains(int index)
+    {
+        return qp[index] != -1;
+    }
+
+    /**
+     * Associate <code>index</code> with the given <code>priority</code>
+     *
+     * @param index The index to insert.
+     * @param priority The priority of <code>index</code>.
+     *
+     * @throws IndexOutOfBoundsException If <code>index</code> is less than 0 or
+     * greater than or equal to the maximum size of the priority queue.
+     *
+     * @throws IllegalArgumentException If <code>index</code> is already in the
+     * priority queue.
+     */
+    public void insert(int index, double priority)
+    {
+        if (contains(index)) {
+            throw new IllegalArgumentException("index is already in the priority queue!");
+        }
+        swim(size++, index, priority);
+    }
+
+    /**
+     * Decreases the priority of <code>index</code>. Nothing happens if the
+     * priority is not lower than the one it has.
+     *
+     * @param index The index to decrease the priority for.
+     * @param priority The new priority.
+     * @throws IndexOutOfBoundsException If <code>index</code> is less than 0 or
+     * greater than or equal to the maximum size of the priority queue.
+     *
+     * @throws NoSuchElementException If <code>index</code> is not present in
+     * the priority queue.
+     */
+    public void decreaseKey(int index, double priority)
+    {
+        int k = qp[index];
+        if (k == -1) {
+            throw new NoSuchElementException("index is not in the priority queue");
+        }
+        if (keys[k] <= priority) {
+            return;
+        }
+        swim(k, index, priority);
+    }
+
+    /**
+     * Returns the lowest priority in the priority queue.
+     *
+     * @return The lowest priority.
+     * @throws NoSuchElementException If the priority queue is empty.
+     */
+    public double minKey()
+    {
+        if (size == 0) {
+            throw new NoSuchElementException("Priority queue is empty!");
+        }
+        return keys[0];
+    }
+
+    /**
+     * Delete and return the index with the lowest priority.
+     *
+     * @return The index with the lowest priority.
+     * @throws NoSuchElementException If the priority queue is empty.
+     */
+    public int delMin()
+    {
+        if (size == 0) {
+            throw new NoSuchElementException("Priority queue is empty!");
+        }
+        int min = pq[0];
+        qp[min] = -1;
+        if (--size > 0) {
+            sink(0, pq[size], keys[size]);
+        }
+        return min;
+    }
+
+    /**
+     * States whether this priority queue is empty or not.
+     *
+     * @return True if the priority queue is empty. False otherwise.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Removes every index from the priority queue. Only the indexes that are
+     * in the queue are looked at, as the others have been removed already.
+     */
+    public void clear()
+    {
+        for (int k = 0; k < size; k++) {
+            qp[pq[k]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves the parents of place <code>k</code> down, until the index fits
+     * with the given priority, and puts it there.
+     *
+     * @param k The place the index is moving up from.
+     * @param index The index.
+     * @param priority The priority of the index.
+     */
+    private void swim(int k, int index, double priority)
+    {
+        while (k > 0) {
+            int parent = (k - 1) >> 2;
+            if (keys[parent] <= priority) {
+                break;
+            }
+            put(k, pq[parent], keys[parent]);
+            k = parent;
+        }
+        put(k, index, priority);
+    }
+
+    /**
+     * Moves the least child of place <code>k</code> up, until the index fits
+     * with the given priority, and puts it there.
+     *
+     * @param k The place the index is moving down from.
+     * @param index The index.
+     * @param priority The priority of the index.
+     */
+    private void sink(int k, int index, double priority)
+    {
+        while (true) {
+            int first = (k << 2) + 1;
+            if (first >= size) {
+                break;
+            }
+            int least = first;
+            int last = Math.min(first + 4, size);
+            for (int child = first + 1; child < last; child++) {
+                if (keys[child] < keys[least]) {
+                    least = child;
+                }
+            }
+            if (keys[least] >= priority) {
+                break;
+            }
+            put(k, pq[least], keys[least]);
+            k = least;
+        }
+        put(k, index, priority);
+    }
+
+    private void put(int k, int index, double priority)
+    {
+        pq[k] = index;
+        qp[index] = k;
+        keys[k] = priority;
+    }
+}
@@ -0,0 +1,38 @@
+package dk.itu.groupe;
+
+import dk.itu.groupe.data.CommonRoadType;
+import java.awt.BasicStroke;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mikael
+ */
+public class StyleTableTest
+{
+
+    @Test
+    public void testStrokes()
+    {
+        StyleTable table = StyleTable.createDefault();
+        StyleTable.Style motorway = table.getStyle(CommonRoadType.MOTORWAY, 0);
+        // Strokes in meters do not depend on the factor.
+        assertSame(motorway.getStroke(1), motorway.getStroke(50));
+        assertEquals(15, motorway.getStroke(1).getLineWidth(), 0);
+        // Levels that are not in the table use the last one.
+        assertSame(motorway, table.getStyle(CommonRoadType.MOTORWAY, 100));
+
+        StyleTable.Style ferry = table.getStyle(CommonRoadType.FERRY, 0);
+        BasicStroke stroke = ferry.getStroke(4);
+        assertEquals(4, stroke.getLineWidth(), 0);
+        assertArrayEquals(new float[]{40}, stroke.getDashArray(), 0);
+        // The stroke is kept while the factor is the same.
+        assertSame(stroke, ferry.getStroke(4));
+        assertNotSame(stroke, ferry.getStroke(8));
+        assertEquals(8, ferry.getStroke(8).getLineWidth(), 0);
+    }
+}
@@ -0,0 +1,92 @@
+package dk.itu.groupe;
+
+import java.awt.image.BufferedImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mikael
+ */
+public class TileCacheTest
+{
+
+    @Test
+    public void testGrid()
+    {
+        // A tile at factor 2 covers 512 meters.
+        assertEquals(0, TileCache.column(0, 2));
+        assertEquals(0, TileCache.column(511, 2));
+        assertEquals(1, TileCache.column(512, 2));
+        assertEquals(-1, TileCache.column(-1, 2));
+        // Rows are counted downwards.
+        assertEquals(-1, TileCache.row(1, 2));
+        assertEquals(0, TileCache.row(0, 2));
+        assertEquals(1, TileCache.row(-512, 2));
+    }
+
+    /*
+     * The tiles are keyed by zoom level, so every factor of the map has to be
+     * the factor of a level, and give that level back.
+     */
+    @Test
+    public void testZoomLevels()
+    {
+        assertEquals(1, Model.zoomFactor(0), 0);
+        assertEquals(2, Model.zoomFactor(Model.ZOOM_STEPS), 0);
+        for (int level = -2 * Model.ZOOM_STEPS; level <= 10 * Model.ZOOM_STEPS; level++) {
+            double factor = Model.zoomFactor(level);
+            assertEquals(level, Model.zoomLevel(factor));
+            // A factor between two levels is rounded up to the next level.
+            assertEquals(level + 1, Model.zoomLevel(factor * 1.001));
+        }
+    }
+
+    /*
+     * The cache has room for two tiles, so the least recently used of three
+     * tiles is removed.
+     */
+    @Test
+    public void testEviction()
+    {
+        int size = TileCache.TILE_SIZE;
+        TileCache instance = new TileCache(2L * size * size * 4);
+        BufferedImage first = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        BufferedImage second = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        BufferedImage third = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        instance.put(1, 0, 0, first);
+        instance.put(1, 1, 0, second);
+        assertSame(first, instance.get(1, 0, 0));
+        assertNull(instance.get(2, 0, 0));
+        instance.put(1, 2, 0, third);
+        assertEquals(2, instance.size());
+        assertNotNull(instance.get(1, 0, 0));
+        assertNull(instance.get(1, 1, 0));
+        assertSame(third, instance.get(1, 2, 0));
+        assertEquals(2L * size * size * 4, instance.getBytes());
+    }
+
+    /*
+     * A tile of the generation before the cache was cleared is left out.
+     */
+    @Test
+    public void testGeneration()
+    {
+        int size = TileCache.TILE_SIZE;
+        TileCache instance = new TileCache(4L * size * size * 4);
+        BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        int old = instance.generation();
+        assertTrue(instance.put(old, 1, 0, 0, tile));
+        instance.clear();
+        assertFalse(instance.put(old, 1, 1, 0, tile));
+        assertNull(instance.get(1, 1, 0));
+        assertEquals(0, instance.size());
+        assertTrue(instance.put(instance.generation(), 1, 1, 0, tile));
+        assertSame(tile, instance.get(1, 1, 0));
+    }
+}
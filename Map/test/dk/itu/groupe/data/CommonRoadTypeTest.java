@@ -0,0 +1,29 @@
+package dk.itu.groupe.data;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mikael
+ */
+public class CommonRoadTypeTest
+{
+
+    /**
+     * Test of getDetailLevels, which only counts the levels a roadtype is
+     * drawn at above their smallest factor.
+     */
+    @Test
+    public void testGetDetailLevels()
+    {
+        // Hidden above factor 8, where the first simplified level begins.
+        assertEquals(1, CommonRoadType.RESIDENTIAL.getDetailLevels());
+        assertEquals(1, CommonRoadType.PATH.getDetailLevels());
+        // Hidden above factor 65.
+        assertEquals(2, CommonRoadType.PRIMARY.getDetailLevels());
+        assertEquals(2, CommonRoadType.PLACES.getDetailLevels());
+        // Always drawn.
+        assertEquals(4, CommonRoadType.MOTORWAY.getDetailLevels());
+    }
+}
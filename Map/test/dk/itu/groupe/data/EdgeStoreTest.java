@@ -0,0 +1,90 @@
+package dk.itu.groupe.data;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mikael
+ */
+public class EdgeStoreTest
+{
+
+    /*
+     * A zigzag of 11 nodes, where every other node is 1 meter off the line
+     * between its neighbours, except the middle node which is 10 meters off.
+     */
+    @Test
+    public void testSimplify()
+    {
+        NodeStore nodes = new NodeStore(11);
+        int[] ids = new int[11];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+            nodes.set(i, i * 10, i == 5 ? 10 : i % 2);
+        }
+        EdgeStore store = new EdgeStore(nodes, false);
+        int e = store.add(ids, ids.length);
+        store.simplify(new double[]{0.5, 2, 20});
+        assertEquals(4, store.getLevels());
+        assertEquals(11, points(store, e, 0));
+        assertEquals(11, points(store, e, 1));
+        // The middle node is kept, and then the nodes next to it are far
+        // from the lines to the middle node.
+        assertEquals(5, points(store, e, 2));
+        assertEquals(2, points(store, e, 3));
+        // Levels that are not built use the most simplified one.
+        assertEquals(2, points(store, e, 7));
+        // The full geometry is unchanged.
+        assertEquals(11, store.length(e));
+        assertEquals(10, store.to(e));
+    }
+
+    /*
+     * A zigzag going in and out of the rectangle from (0, 0) to (10, 10).
+     */
+    @Test
+    public void testAppendClipped()
+    {
+        NodeStore nodes = new NodeStore(4);
+        nodes.set(0, -10, 5);
+        nodes.set(1, 5, 5);
+        nodes.set(2, 5, 20);
+        nodes.set(3, 8, 5);
+        EdgeStore store = new EdgeStore(nodes, false);
+        int e = store.add(new int[]{0, 1, 2, 3}, 4);
+        Path2D path = new Path2D.Float();
+        assertEquals(5, store.appendClipped(path, e, 0, 0, 0, 10, 10));
+        double[][] expected = {{0, 5}, {5, 5}, {5, 10}, {7, 10}, {8, 5}};
+        int[] types = {PathIterator.SEG_MOVETO, PathIterator.SEG_LINETO, PathIterator.SEG_LINETO,
+            PathIterator.SEG_MOVETO, PathIterator.SEG_LINETO};
+        float[] coords = new float[6];
+        int i = 0;
+        for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next(), i++) {
+            assertEquals(types[i], it.currentSegment(coords));
+            assertEquals(expected[i][0], coords[0], 1e-4);
+            assertEquals(expected[i][1], coords[1], 1e-4);
+        }
+        assertEquals(expected.length, i);
+        // An edge inside the rectangle is not changed.
+        path.reset();
+        assertEquals(4, store.appendClipped(path, e, 0, -20, 0, 20, 30));
+        assertEquals(4, points(path));
+    }
+
+    private int points(EdgeStore store, int e, int level)
+    {
+        return points(store.getShape(e, level));
+    }
+
+    private int points(Path2D path)
+    {
+        int count = 0;
+        for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+}
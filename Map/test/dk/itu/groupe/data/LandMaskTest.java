@@ -0,0 +1,51 @@
+package dk.itu.groupe.data;
+
+import java.awt.geom.Path2D;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mikael
+ */
+public class LandMaskTest
+{
+
+    /*
+     * A row of four cells of 10 meters: land, land, a triangle of land and
+     * water.
+     */
+    @Test
+    public void testGetLand()
+    {
+        byte[] kinds = {LandMask.LAND, LandMask.LAND, LandMask.MIXED, LandMask.WATER};
+        int[] firstPart = {0, 0, 0, 1, 1};
+        int[] partOffsets = {0, 3};
+        float[] points = {20, 0, 30, 0, 20, 10};
+        LandMask instance = new LandMask(0, 0, 10, 4, 1, kinds, firstPart, partOffsets, points);
+        assertEquals(LandMask.LAND, instance.getKind(15, 5));
+        assertEquals(LandMask.WATER, instance.getKind(-5, 5));
+        Path2D land = instance.getLand(0, 0, 40, 10);
+        assertTrue(land.contains(5, 5));
+        assertTrue(land.contains(19, 1));
+        assertTrue(land.contains(21, 1));
+        assertFalse(land.contains(29, 9));
+        assertFalse(land.contains(35, 5));
+        // The two land cells are joined into one rectangle, followed by the
+        // triangle.
+        assertEquals(5 + 4, count(land));
+        // Only the cells touching the rectangle are included.
+        assertFalse(instance.getLand(31, 1, 39, 9).contains(5, 5));
+    }
+
+    private int count(Path2D path)
+    {
+        int count = 0;
+        for (java.awt.geom.PathIterator it = path.getPathIterator(null); !it.isDone(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,153 @@
+package dk.itu.groupe.data;
+
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mikael
+ */
+public class RTreeTest
+{
+
+    @Test
+    public void testNoEdge()
+    {
+        Throwable caught = null;
+        try {
+            new RTree(new Edge[0]);
+        } catch (Exception ex) {
+            caught = ex;
+        }
+        assertNotNull(caught);
+        assertSame(IndexOutOfBoundsException.class, caught.getClass());
+    }
+
+    /*
+     * 1000 short diagonal edges on a grid, which is enough for three levels.
+     * Every query should return exactly the edges that intersect it.
+     */
+    @Test
+    public void testGetEdges()
+    {
+        NodeStore nodes = new NodeStore(2000);
+        EdgeStore store = new EdgeStore(nodes, false);
+        Edge[] edges = new Edge[1000];
+        for (int i = 0; i < edges.length; i++) {
+            float x = (i % 40) * 100, y = (i / 40) * 100;
+            nodes.set(2 * i, x, y);
+            nodes.set(2 * i + 1, x + 50, y + 50);
+            edges[i] = new Edge(null, null, 0, 0, OneWay.NO, store, store.add(new int[]{2 * i, 2 * i + 1}, 2));
+        }
+        Edge[] original = edges.clone();
+        RTree instance = new RTree(edges);
+        double[][] queries = {{0, 0, 10, 10}, {120, 220, 480, 260}, {-100, -100, 5000, 5000}, {60, 60, 90, 90}};
+        for (double[] q : queries) {
+            Set<Edge> result = query(instance, q[0], q[1], q[2], q[3]);
+            int expected = 0;
+            for (Edge edge : original) {
+                if (edge.intersects(q[0], q[1], q[2] - q[0], q[3] - q[1])) {
+                    expected++;
+                    assertTrue(result.contains(edge));
+                }
+            }
+            assertEquals(expected, result.size());
+        }
+    }
+
+    /*
+     * A long edge has its center far away from the rectangle, but should still
+     * be found.
+     */
+    @Test
+    public void testLongEdge()
+    {
+        NodeStore nodes = new NodeStore(4);
+        nodes.set(0, 0, 0);
+        nodes.set(1, 100000, 0);
+        nodes.set(2, 10, 10);
+        nodes.set(3, 20, 20);
+        EdgeStore store = new EdgeStore(nodes, false);
+        Edge ferry = new Edge(null, null, 0, 0, OneWay.NO, store, store.add(new int[]{0, 1}, 2));
+        Edge road = new Edge(null, null, 0, 0, OneWay.NO, store, store.add(new int[]{2, 3}, 2));
+        RTree instance = new RTree(new Edge[]{ferry, road});
+        Set<Edge> result = query(instance, 99000, -5, 99010, 5);
+        assertEquals(1, result.size());
+        assertTrue(result.contains(ferry));
+        assertSame(road, instance.getNearest(15, 16, 5));
+    }
+
+    @Test
+    public void testGetNearest()
+    {
+        NodeStore nodes = new NodeStore(200);
+        EdgeStore store = new EdgeStore(nodes, false);
+        Edge[] edges = new Edge[100];
+        for (int i = 0; i < edges.length; i++) {
+            nodes.set(2 * i, i * 100, 0);
+            nodes.set(2 * i + 1, i * 100, 1000);
+            edges[i] = new Edge(null, null, 0, 0, OneWay.NO, store, store.add(new int[]{2 * i, 2 * i + 1}, 2));
+        }
+        Edge[] original = edges.clone();
+        RTree instance = new RTree(edges);
+        Edge[] nearest = instance.getNearest(4230, 500, 3, Double.POSITIVE_INFINITY);
+        assertEquals(3, nearest.length);
+        assertSame(original[42], nearest[0]);
+        assertSame(original[43], nearest[1]);
+        assertSame(original[41], nearest[2]);
+        // Only two edges are within 80 meters.
+        assertEquals(2, instance.getNearest(4230, 500, 3, 80).length);
+        // The point is far away from everything.
+        assertSame(original[99], instance.getNearest(50000, 500, Double.POSITIVE_INFINITY));
+        assertNull(instance.getNearest(50000, 500, 500));
+    }
+
+    /*
+     * The nearest motorway should be found past the residential roads when
+     * only motorways are searched.
+     */
+    @Test
+    public void testLayers()
+    {
+        NodeStore nodes = new NodeStore(200);
+        EdgeStore store = new EdgeStore(nodes, false);
+        Edge[] edges = new Edge[100];
+        for (int i = 0; i < edges.length; i++) {
+            nodes.set(2 * i, i * 100, 0);
+            nodes.set(2 * i + 1, i * 100, 1000);
+            CommonRoadType type = i % 25 == 0 ? CommonRoadType.MOTORWAY : CommonRoadType.RESIDENTIAL;
+            edges[i] = new Edge(type, null, 0, 0, OneWay.NO, store, store.add(new int[]{2 * i, 2 * i + 1}, 2));
+        }
+        Edge[] original = edges.clone();
+        RTree instance = new RTree(edges);
+        assertSame(original[42], instance.getNearest(4230, 500, Double.POSITIVE_INFINITY));
+        int motorways = CommonRoadType.MOTORWAY.getLayer();
+        Edge[] nearest = instance.getNearest(4230, 500, 2, Double.POSITIVE_INFINITY, motorways);
+        assertEquals(2, nearest.length);
+        assertSame(original[50], nearest[0]);
+        assertSame(original[25], nearest[1]);
+        assertEquals(0, instance.getNearest(4230, 500, 1, 500, motorways).length);
+        assertEquals(0, instance.getNearest(4230, 500, 1, Double.POSITIVE_INFINITY, CommonRoadType.FERRY.getLayer()).length);
+    }
+
+    private Set<Edge> query(RTree tree, double leftX, double bottomY, double rightX, double topY)
+    {
+        final Set<Edge> result = new HashSet<>();
+        tree.getEdges(leftX, bottomY, rightX, topY, new EdgeVisitor()
+        {
+
+            @Override
+            public void visit(Edge edge)
+            {
+                assertTrue(result.add(edge));
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,89 @@
+package dk.itu.groupe.pathfinding;
+
+import dk.itu.groupe.data.Edge;
+import dk.itu.groupe.data.EdgeStore;
+import dk.itu.groupe.data.NodeStore;
+import dk.itu.groupe.data.OneWay;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mikael
+ */
+public class ContractionHierarchyTest
+{
+
+    private static final int SIZE = 30;
+
+    @Test
+    public void testRoute() throws NoPathFoundException
+    {
+        Random random = new Random(7);
+        TestGrid grid = TestGrid.random(SIZE, 42);
+        Graph g = grid.graph;
+        for (boolean driveTime : new boolean[]{false, true}) {
+            ContractionHierarchy hierarchy = new ContractionHierarchyBuilder(g, driveTime).build();
+            for (int i = 0; i < 200; i++) {
+                int from = random.nextInt(SIZE * SIZE), to = random.nextInt(SIZE * SIZE);
+                ShortestPath path = new ShortestPath(g, from, to, driveTime, grid.nodes);
+                if (!path.hasPathTo(to)) {
+                    continue;
+                }
+                Route route = hierarchy.route(from, to);
+                // The edges follow each other from the first node to the last.
+                int at = from;
+                for (Edge e : route.getEdges()) {
+                    assertTrue(e.from() == at || e.to() == at);
+                    at = e.from() == at ? e.to() : e.from();
+                }
+                assertEquals(to, at);
+                double weight = driveTime ? route.getDriveTime() : route.getLength();
+                assertEquals(path.distTo(to), weight, 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void testNoRoute()
+    {
+        NodeStore nodes = new NodeStore(3);
+        EdgeStore store = new EdgeStore(nodes, false);
+        Graph g = new Graph(3);
+        g.addEdge(new Edge(null, null, 100, 1, OneWay.FROM_TO, store, store.add(new int[]{0, 1}, 2)));
+        ContractionHierarchy hierarchy = new ContractionHierarchyBuilder(g, true).build();
+        Throwable caught = null;
+        try {
+            hierarchy.route(1, 0);
+        } catch (NoPathFoundException ex) {
+            caught = ex;
+        }
+        assertNotNull(caught);
+    }
+
+    @Test
+    public void testReadWrite() throws IOException, NoPathFoundException
+    {
+        Graph g = TestGrid.random(SIZE, 3).graph;
+        ContractionHierarchyBuilder builder = new ContractionHierarchyBuilder(g, false);
+        builder.build();
+        File file = File.createTempFile("hierarchy", ".bin");
+        try {
+            builder.write(file.getPath());
+            ContractionHierarchy hierarchy = ContractionHierarchy.read(file.getPath(), g);
+            assertNotNull(hierarchy);
+            assertEquals(builder.getHierarchy().route(0, SIZE * SIZE - 1).getLength(),
+                    hierarchy.route(0, SIZE * SIZE - 1).getLength(), 1e-6);
+            // A hierarchy does not fit another Graph.
+            assertNull(ContractionHierarchy.read(file.getPath(), new Graph(SIZE * SIZE)));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dk.itu.groupe.pathfinding;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mikael
+ */
+public class LandmarksTest
+{
+
+    private static final int SIZE = 30;
+
+    @Test
+    public void testRoute()
+    {
+        Random random = new Random(7);
+        TestGrid grid = TestGrid.random(SIZE, 42);
+        Graph g = grid.graph;
+        for (boolean driveTime : new boolean[]{false, true}) {
+            Landmarks landmarks = Landmarks.build(g, driveTime, 4);
+            for (int i = 0; i < 200; i++) {
+                int from = random.nextInt(SIZE * SIZE), to = random.nextInt(SIZE * SIZE);
+                ShortestPath dijkstra = new ShortestPath(g, from, to, driveTime, grid.nodes);
+                ShortestPath path = new ShortestPath(g, from, to, driveTime, grid.nodes, landmarks);
+                assertEquals(dijkstra.hasPathTo(to), path.hasPathTo(to));
+                if (dijkstra.hasPathTo(to)) {
+                    // The bound is never greater than the distance.
+                    assertTrue(landmarks.lowerBound(from, to) <= dijkstra.distTo(to));
+                    assertEquals(dijkstra.distTo(to), path.distTo(to), 1e-3);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws IOException
+    {
+        Graph g = TestGrid.random(SIZE, 3).graph;
+        Landmarks landmarks = Landmarks.build(g, true, 4);
+        File file = File.createTempFile("landmarks", ".bin");
+        try {
+            landmarks.write(file.getPath(), g);
+            Landmarks read = Landmarks.read(file.getPath(), g);
+            assertNotNull(read);
+            assertTrue(read.pathByDriveTime());
+            for (int v = 0; v < SIZE * SIZE; v += 7) {
+                assertEquals(landmarks.lowerBound(v, 0), read.lowerBound(v, 0), 0);
+            }
+            // The landmarks do not fit another Graph.
+            assertNull(Landmarks.read(file.getPath(), new Graph(SIZE * SIZE)));
+            // Nor does a file that has been cut short.
+            try (RandomAccessFile cut = new RandomAccessFile(file, "rw")) {
+                cut.setLength(file.length() - 4);
+            }
+            assertNull(Landmarks.read(file.getPath(), g));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package dk.itu.groupe.pathfinding;
+
+import dk.itu.groupe.data.Edge;
+import dk.itu.groupe.data.NodeStore;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Mikael
+ */
+public class ShortestPathTest
+{
+
+    private static final int SIZE = 50;
+    // Along the top is shortest, and down to the fast roads and back up is
+    // fastest.
+    private final TestGrid grid = TestGrid.fastRow(SIZE);
+    private final Graph g = grid.graph;
+    private final NodeStore nodes = grid.nodes;
+
+    @Test
+    public void testRoute()
+    {
+        int from = SIZE * (SIZE - 1), to = SIZE * SIZE - 1;
+        for (boolean driveTime : new boolean[]{false, true}) {
+            ShortestPath path = new ShortestPath(g, from, to, driveTime, nodes);
+            Route route = path.routeTo(to);
+            assertNotNull(route);
+            assertEquals(from, route.getFrom());
+            assertEquals(to, route.getTo());
+            // The edges follow each other from the first node to the last.
+            List<Edge> edges = route.getEdges();
+            int at = from;
+            for (Edge e : edges) {
+                assertTrue(e.from() == at || e.to() == at);
+                at = e.from() == at ? e.to() : e.from();
+            }
+            assertEquals(to, at);
+            double weight = driveTime ? route.getDriveTime() : route.getLength();
+            assertEquals(path.distTo(to), weight, 1e-6);
+        }
+        // From the top left corner to the top right.
+        assertEquals((SIZE - 1) * 100, new ShortestPath(g, from, to, false, nodes).routeTo(to).getLength(), 1e-6);
+        assertEquals((SIZE + 1) * 100, new ShortestPath(g, from, to, true, nodes).routeTo(to).getLength(), 1e-6);
+    }
+
+    /**
+     * Only the destination can be asked about.
+     */
+    @Test
+    public void testOtherNode()
+    {
+        ShortestPath path = new ShortestPath(g, 0, SIZE * SIZE - 1, false, nodes);
+        assertTrue(path.hasPathTo(SIZE * SIZE - 1));
+        Throwable caught = null;
+        try {
+            path.distTo(1);
+        } catch (IllegalArgumentException ex) {
+            caught = ex;
+        }
+        assertNotNull(caught);
+    }
+
+    @Test
+    public void testBidirectional()
+    {
+        Random random = new Random(11);
+        for (boolean driveTime : new boolean[]{false, true}) {
+            Landmarks landmarks = Landmarks.build(g, driveTime, 4);
+            for (int i = 0; i < 100; i++) {
+                int from = random.nextInt(SIZE * SIZE), to = random.nextInt(SIZE * SIZE);
+                double expected = new ShortestPath(g, from, to, driveTime, nodes).distTo(to);
+                for (Landmarks l : new Landmarks[]{null, landmarks}) {
+                    ShortestPath path = new ShortestPath(g, from, to, driveTime, nodes, l, true);
+                    assertEquals(expected, path.distTo(to), 1e-3);
+                    Route route = path.routeTo(to);
+                    int at = from;
+                    for (Edge e : route.getEdges()) {
+                        assertTrue(e.from() == at || e.to() == at);
+                        at = e.from() == at ? e.to() : e.from();
+                    }
+                    assertEquals(to, at);
+                    assertEquals(expected, driveTime ? route.getDriveTime() : route.getLength(), 1e-3);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInterrupted()
+    {
+        Throwable caught = null;
+        Thread.currentThread().interrupt();
+        try {
+            new ShortestPath(g, 0, SIZE * SIZE - 1, true, nodes);
+        } catch (CancellationException ex) {
+            caught = ex;
+        } finally {
+            // Clears the flag.
+            Thread.interrupted();
+        }
+        assertNotNull(caught);
+        // The search that was stopped leaves nothing behind for the next.
+        ShortestPath path = new ShortestPath(g, 0, SIZE * SIZE - 1, false, nodes);
+        assertEquals((SIZE - 1) * 200, path.distTo(SIZE * SIZE - 1), 1e-6);
+    }
+}
@@ -0,0 +1,90 @@
+package dk.itu.groupe.pathfinding;
+
+import dk.itu.groupe.data.Edge;
+import dk.itu.groupe.data.EdgeStore;
+import dk.itu.groupe.data.NodeStore;
+import dk.itu.groupe.data.OneWay;
+import java.util.Random;
+
+/**
+ * A grid of roads for the tests of the route searches to search.
+ *
+ * The nodes lie in rows of <code>size</code> nodes, 100 meters apart, and node
+ * i is in column i % size of row i / size.
+ *
+ * @author Mikael
+ */
+class TestGrid
+{
+
+    final NodeStore nodes;
+    final Graph graph;
+    private final EdgeStore store;
+
+    private TestGrid(int size)
+    {
+        nodes = new NodeStore(size * size);
+        store = new EdgeStore(nodes, false);
+        graph = new Graph(size * size);
+        for (int i = 0; i < size * size; i++) {
+            nodes.set(i, (i % size) * 100, (i / size) * 100);
+        }
+    }
+
+    private void addRoad(int from, int to, float length, float driveTime, OneWay oneWay)
+    {
+        graph.addEdge(new Edge(null, null, length, driveTime, oneWay, store, store.add(new int[]{from, to}, 2)));
+    }
+
+    /**
+     * Builds a grid with diagonals, where the roads have random lengths and
+     * drive times, and some are missing, some are one-way, and some are
+     * doubled. No road is shorter than the distance between its nodes, which
+     * ShortestPath relies on.
+     *
+     * @param size The number of nodes in a row.
+     * @param seed The seed of the random roads.
+     * @return The grid.
+     */
+    static TestGrid random(int size, long seed)
+    {
+        Random random = new Random(seed);
+        OneWay[] oneWays = OneWay.values();
+        TestGrid grid = new TestGrid(size);
+        for (int i = 0; i < size * size; i++) {
+            for (int j : new int[]{i + 1, i + size, i + size + 1}) {
+                if (j >= size * size || (j != i + size && j % size == 0) || random.nextInt(10) == 0) {
+                    continue;
+                }
+                int length = j == i + size + 1 ? 150 : 100;
+                int copies = random.nextInt(20) == 0 ? 2 : 1;
+                for (int c = 0; c < copies; c++) {
+                    OneWay oneWay = random.nextInt(5) == 0 ? oneWays[random.nextInt(oneWays.length)] : OneWay.NO;
+                    grid.addRoad(i, j, length + random.nextInt(100), 0.5f + random.nextFloat(), oneWay);
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Builds a grid where every road is 100 meters and takes a minute to
+     * drive, except the roads along the row below the top, which are fast.
+     *
+     * @param size The number of nodes in a row.
+     * @return The grid.
+     */
+    static TestGrid fastRow(int size)
+    {
+        TestGrid grid = new TestGrid(size);
+        for (int i = 0; i < size * size; i++) {
+            if (i % size < size - 1) {
+                grid.addRoad(i, i + 1, 100, i / size == size - 2 ? 0.1f : 1, OneWay.NO);
+            }
+            if (i / size < size - 1) {
+                grid.addRoad(i, i + size, 100, 1, OneWay.NO);
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,91 @@
+package dk.itu.groupe.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Mikael
+ */
+public class IndexedDoubleMinPQTest
+{
+
+    /**
+     * Test of insert, decreaseKey and delMin against the smallest of an array
+     * of priorities.
+     */
+    @Test
+    public void testOrder()
+    {
+        int size = 500;
+        Random random = new Random(1);
+        IndexedDoubleMinPQ instance = new IndexedDoubleMinPQ(size);
+        // The priority of every index in the queue, and NaN for the others.
+        double[] expected = new double[size];
+        Arrays.fill(expected, Double.NaN);
+        for (int i = 0; i < 20000; i++) {
+            int index = random.nextInt(size);
+            double priority = random.nextInt(1000);
+            switch (random.nextInt(3)) {
+                case 0:
+                    if (!instance.contains(index)) {
+                        instance.insert(index, priority);
+                        expected[index] = priority;
+                    }
+                    break;
+                case 1:
+                    if (instance.contains(index)) {
+                        instance.decreaseKey(index, priority);
+                        expected[index] = Math.min(expected[index], priority);
+                    }
+                    break;
+                default:
+                    if (!instance.isEmpty()) {
+                        double min = instance.minKey();
+                        int minIndex = instance.delMin();
+                        assertEquals(expected[minIndex], min, 0);
+                        for (double other : expected) {
+                            assertFalse(other < min);
+                        }
+                        expected[minIndex] = Double.NaN;
+                    }
+            }
+            for (int j = 0; j < size; j += 50) {
+                assertEquals(!Double.isNaN(expected[j]), instance.contains(j));
+            }
+        }
+    }
+
+    /**
+     * Test of clear, and of using the queue again after it.
+     */
+    @Test
+    public void testClear()
+    {
+        IndexedDoubleMinPQ instance = new IndexedDoubleMinPQ(10);
+        for (int i = 0; i < 10; i++) {
+            instance.insert(i, 10 - i);
+        }
+        assertEquals(9, instance.delMin());
+        instance.clear();
+        assertTrue(instance.isEmpty());
+        for (int i = 0; i < 10; i++) {
+            assertFalse(instance.contains(i));
+        }
+        instance.insert(3, 2.5);
+        instance.insert(9, 1.5);
+        assertEquals(1.5, instance.minKey(), 0);
+        assertEquals(9, instance.delMin());
+        assertEquals(3, instance.delMin());
+        Throwable caught = null;
+        try {
+            instance.delMin();
+        } catch (NoSuchElementException ex) {
+            caught = ex;
+        }
+        assertNotNull(caught);
+    }
+}
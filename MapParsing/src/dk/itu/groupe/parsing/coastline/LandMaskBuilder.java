@@ -0,0 +1,271 @@
+package dk.itu.groupe.parsing.coastline;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cuts the land polygons into a grid of square cells, so the map can draw the
+ * land of a region without handling the whole polygons.
+ *
+ * A cell is either water, land or mixed. Only mixed cells store geometry,
+ * which is the parts of the polygons inside the cell, clipped to the cell and
+ * turned counter-clockwise so they can be filled together with the non-zero
+ * winding rule.
+ *
+ * The polygons are clipped to the cells by repeatedly cutting them in half
+ * along the grid lines, so every vertex is only handled once per level of
+ * cutting, instead of once per cell.
+ *
+ * The file is written with a DataOutputStream: the x- and y-coordinate of the
+ * lower left corner of the grid and the size of the cells as doubles, the
+ * number of columns and rows as ints, and then for every cell, row by row from
+ * the bottom, a byte telling the kind of the cell. Mixed cells are followed by
+ * the number of parts, and each part by its number of points and the points
+ * as pairs of floats.
+ *
+ * @author Mikael
+ */
+public class LandMaskBuilder
+{
+
+    static final byte WATER = 0, LAND = 1, MIXED = 2;
+    private final double cellSize;
+    private final List<double[]> parts;
+    private double xMin, yMin, xMax, yMax;
+    private int columns, rows;
+    private byte[] kinds;
+    private Map<Integer, List<double[]>> mixed;
+
+    /**
+     * Creates a new builder.
+     *
+     * @param cellSize The width and height of the cells in meters.
+     */
+    public LandMaskBuilder(double cellSize)
+    {
+        this.cellSize = cellSize;
+        parts = new ArrayList<>();
+        xMin = yMin = Double.POSITIVE_INFINITY;
+        xMax = yMax = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Adds a polygon of land.
+     *
+     * @param xy The points of the polygon as x- and y-coordinates after each
+     * other. The polygon is closed from the last point to the first.
+     */
+    public void addPolygon(double[] xy)
+    {
+        if (xy.length < 6) {
+            return;
+        }
+        parts.add(xy);
+        for (int i = 0; i < xy.length; i += 2) {
+            xMin = Math.min(xMin, xy[i]);
+            xMax = Math.max(xMax, xy[i]);
+            yMin = Math.min(yMin, xy[i + 1]);
+            yMax = Math.max(yMax, xy[i + 1]);
+        }
+    }
+
+    /**
+     * Cuts the polygons into cells and writes the land mask to the file.
+     *
+     * @param fileName The file to write to.
+     * @throws IOException If the file could not be written.
+     */
+    public void write(String fileName) throws IOException
+    {
+        if (parts.isEmpty()) {
+            xMin = yMin = xMax = yMax = 0;
+        }
+        xMin = Math.floor(xMin / cellSize) * cellSize;
+        yMin = Math.floor(yMin / cellSize) * cellSize;
+        columns = Math.max(1, (int) Math.ceil((xMax - xMin) / cellSize));
+        rows = Math.max(1, (int) Math.ceil((yMax - yMin) / cellSize));
+        kinds = new byte[columns * rows];
+        mixed = new HashMap<>();
+        for (double[] part : parts) {
+            int c0 = column(part, true), c1 = column(part, false);
+            int r0 = row(part, true), r1 = row(part, false);
+            cut(part, c0, c1, r0, r1);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeDouble(xMin);
+            out.writeDouble(yMin);
+            out.writeDouble(cellSize);
+            out.writeInt(columns);
+            out.writeInt(rows);
+            for (int cell = 0; cell < kinds.length; cell++) {
+                out.writeByte(kinds[cell]);
+                if (kinds[cell] == MIXED) {
+                    List<double[]> cellParts = mixed.get(cell);
+                    out.writeInt(cellParts.size());
+                    for (double[] xy : cellParts) {
+                        out.writeInt(xy.length / 2);
+                        for (double v : xy) {
+                            out.writeFloat((float) v);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int column(double[] xy, boolean first)
+    {
+        double x = first ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < xy.length; i += 2) {
+            x = first ? Math.min(x, xy[i]) : Math.max(x, xy[i]);
+        }
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - xMin) / cellSize)));
+    }
+
+    private int row(double[] xy, boolean first)
+    {
+        double y = first ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        for (int i = 1; i < xy.length; i += 2) {
+            y = first ? Math.min(y, xy[i]) : Math.max(y, xy[i]);
+        }
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - yMin) / cellSize)));
+    }
+
+    /**
+     * Cuts the polygon, which is inside the given cells, in half until it is
+     * inside a single cell.
+     */
+    private void cut(double[] xy, int c0, int c1, int r0, int r1)
+    {
+        if (xy.length < 6) {
+            return;
+        }
+        if (c0 == c1 && r0 == r1) {
+            addToCell(xy, c0, r0);
+        } else if (c1 - c0 >= r1 - r0) {
+            int mid = (c0 + c1) >>> 1;
+            double x = xMin + (mid + 1) * cellSize;
+            cut(clip(xy, 0, x, true), c0, mid, r0, r1);
+            cut(clip(xy, 0, x, false), mid + 1, c1, r0, r1);
+        } else {
+            int mid = (r0 + r1) >>> 1;
+            double y = yMin + (mid + 1) * cellSize;
+            cut(clip(xy, 1, y, true), c0, c1, r0, mid);
+            cut(clip(xy, 1, y, false), c0, c1, mid + 1, r1);
+        }
+    }
+
+    /**
+     * Clips the polygon to one side of a grid line, using the
+     * Sutherland-Hodgman algorithm.
+     *
+     * @param xy The points of the polygon.
+     * @param axis 0 to clip on an x-coordinate, 1 to clip on a y-coordinate.
+     * @param value The coordinate of the line.
+     * @param below Whether to keep the side below the line, or the side above.
+     * @return The points of the clipped polygon.
+     */
+    private static double[] clip(double[] xy, int axis, double value, boolean below)
+    {
+        // Every point adds at most itself and one point on the line.
+        double[] out = new double[2 * xy.length];
+        int n = 0;
+        double px = xy[xy.length - 2], py = xy[xy.length - 1];
+        boolean pIn = inside(axis == 0 ? px : py, value, below);
+        for (int i = 0; i < xy.length; i += 2) {
+            double cx = xy[i], cy = xy[i + 1];
+            boolean cIn = inside(axis == 0 ? cx : cy, value, below);
+            if (cIn != pIn) {
+                if (axis == 0) {
+                    out[n++] = value;
+                    out[n++] = py + (value - px) / (cx - px) * (cy - py);
+                } else {
+                    out[n++] = px + (value - py) / (cy - py) * (cx - px);
+                    out[n++] = value;
+                }
+            }
+            if (cIn) {
+                out[n++] = cx;
+                out[n++] = cy;
+            }
+            px = cx;
+            py = cy;
+            pIn = cIn;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static boolean inside(double v, double value, boolean below)
+    {
+        return below ? v <= value : v >= value;
+    }
+
+    /**
+     * Adds a polygon clipped to a cell to the cell. If it covers the whole
+     * cell, the cell becomes land.
+     */
+    private void addToCell(double[] xy, int column, int row)
+    {
+        int cell = row * columns + column;
+        if (kinds[cell] == LAND) {
+            return;
+        }
+        double area = area(xy);
+        if (Math.abs(area) < 1e-6 * cellSize * cellSize) {
+            return;
+        }
+        if (Math.abs(area) > (1 - 1e-9) * cellSize * cellSize) {
+            kinds[cell] = LAND;
+            mixed.remove(cell);
+            return;
+        }
+        if (area < 0) {
+            reverse(xy);
+        }
+        kinds[cell] = MIXED;
+        List<double[]> cellParts = mixed.get(cell);
+        if (cellParts == null) {
+            cellParts = new ArrayList<>();
+            mixed.put(cell, cellParts);
+        }
+        cellParts.add(xy);
+    }
+
+    /**
+     * Returns the signed area of the polygon, which is positive if the
+     * polygon is counter-clockwise.
+     */
+    private static double area(double[] xy)
+    {
+        // Relative to the first point, as the coordinates are large.
+        double x0 = xy[0], y0 = xy[1];
+        double sum = 0;
+        double px = xy[xy.length - 2] - x0, py = xy[xy.length - 1] - y0;
+        for (int i = 0; i < xy.length; i += 2) {
+            double cx = xy[i] - x0, cy = xy[i + 1] - y0;
+            sum += px * cy - cx * py;
+            px = cx;
+            py = cy;
+        }
+        return sum / 2;
+    }
+
+    private static void reverse(double[] xy)
+    {
+        for (int i = 0, j = xy.length - 2; i < j; i += 2, j -= 2) {
+            double x = xy[i], y = xy[i + 1];
+            xy[i] = xy[j];
+            xy[i + 1] = xy[j + 1];
+            xy[j] = x;
+            xy[j + 1] = y;
+        }
+    }
+}
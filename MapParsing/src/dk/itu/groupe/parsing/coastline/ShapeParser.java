@@ -17,10 +17,17 @@ import org.nocrala.tools.gis.data.esri.shapefile.shape.shapes.PolygonShape;
  * information about points and "edges" links these points together to form the
  * polygons.
  *
+ * A land mask of the polygons cut into cells is written as well, see
+ * LandMaskBuilder.
+ *
  * @author Mikael
  */
 public class ShapeParser
 {
+    /**
+     * The size of the cells of the land mask in meters.
+     */
+    private static final double landMaskCellSize = 1000;
     private final double xMin, yMin, xMax, yMax;
     private final java.awt.geom.Rectangle2D denmark;
     String fileName;
@@ -70,6 +77,7 @@ public class ShapeParser
         new java.io.File("./res/data/coastline").mkdirs();
         DataOutputStream edgeWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream("./res/data/coastline/edges.bin")));
         DataOutputStream nodeWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream("./res/data/coastline/nodes.bin")));
+        LandMaskBuilder landMask = new LandMaskBuilder(landMaskCellSize);
         int nodenumber = 0;
         for (AbstractShape s = shapeReader.next(); s != null; s = shapeReader.next()) {
             switch (s.getShapeType()) {
@@ -82,16 +90,23 @@ public class ShapeParser
                     }
                     for (int j = 0; j < polygon.getNumberOfParts(); j++) {
                         PointData[] pds = polygon.getPointsOfPart(j);
+                        double[] part = new double[2 * (pds.length - 1)];
                         edgeWriter.writeInt(pds.length - 1);
                         for (int i = 0; i < pds.length - 1; i++) {
                             PointData pd = pds[i];
                             double[] xy = new double[2];
-                            assert 32 == GeoConvert.LatLonToUTMXY(GeoConvert.DegToRad(pd.getY()), GeoConvert.DegToRad(pd.getX()), 32, xy);
+                            // Not inside the assert, as it would not be run
+                            // when assertions are disabled.
+                            int zone = GeoConvert.LatLonToUTMXY(GeoConvert.DegToRad(pd.getY()), GeoConvert.DegToRad(pd.getX()), 32, xy);
+                            assert zone == 32;
                             edgeWriter.writeInt(nodenumber);
                             nodeWriter.writeInt(nodenumber++);
                             nodeWriter.writeFloat((float)xy[0]);
                             nodeWriter.writeFloat((float)xy[1]);
+                            part[2 * i] = xy[0];
+                            part[2 * i + 1] = xy[1];
                         }
+                        landMask.addPolygon(part);
                     }
                     break;
             }
@@ -101,6 +116,7 @@ public class ShapeParser
         nodeWriter.close();
         edgeWriter.close();
         infoWriter.close();
+        landMask.write("./res/data/coastline/landmask.bin");
     }
 
     /**